@@ -0,0 +1,56 @@
+// The operations EngineBenchmarks measures, on one BenchmarkCorpus position; see benchmarks.Engine for why
+// they sit here rather than in the benchmark class.
+public class EngineBridge implements benchmarks.Engine
+{
+    private final Position position;
+    private final MoveList moves = new MoveList();
+    private final long own;
+    private final long opponent;
+    private final AIPlayer player;
+
+    public EngineBridge(String corpus, int depth)
+    {
+        position = BenchmarkCorpus.position(corpus);
+        own = position.ownPieces();
+        opponent = position.opponentPieces();
+        player = depth > 0 ? new AIPlayer(depth, 1) : null;
+    }
+
+    @Override
+    public int generateMoves()
+    {
+        position.generateMoves(moves);
+        return moves.size();
+    }
+
+    @Override
+    public long captures()
+    {
+        long captured = 0;
+        for (long squares = own; squares != 0; squares &= squares - 1)
+        {
+            captured |= Bitboard.captures(own, opponent, Long.numberOfTrailingZeros(squares));
+        }
+        return captured;
+    }
+
+    @Override
+    public int evaluate()
+    {
+        return Evaluator.evaluate(position.aiPieces(), position.humanPieces());
+    }
+
+    @Override
+    public long key()
+    {
+        return Zobrist.key(position.aiPieces(), position.humanPieces(), position.isAiTurn(), position.movesLeft());
+    }
+
+    // A cleared table and history per call, so every search does the same work.
+    @Override
+    public int search()
+    {
+        player.newGame();
+        return player.chooseMove(position);
+    }
+}
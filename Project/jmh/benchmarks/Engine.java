@@ -0,0 +1,30 @@
+package benchmarks;
+
+// The engine as the benchmarks see it. The game classes live in the default package, which JMH refuses for
+// benchmark classes and which no named package can import, so EngineBridge implements this beside them and is
+// loaded by name. It is the only implementation, so every call site stays monomorphic and is inlined.
+public interface Engine
+{
+    // depth 0 skips creating a player for benchmarks that do not search.
+    static Engine load(String corpus, int depth)
+    {
+        try
+        {
+            return (Engine) Class.forName("EngineBridge").getConstructor(String.class, int.class).newInstance(corpus, depth);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot load EngineBridge", e);
+        }
+    }
+
+    int generateMoves();
+
+    long captures();
+
+    int evaluate();
+
+    long key();
+
+    int search();
+}
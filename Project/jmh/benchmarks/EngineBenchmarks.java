@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JMH benchmarks for the engine hot paths over the BenchmarkCorpus positions. Build and run with the GC
+// profiler for allocation per operation:
+//
+//   mvn -B -Pjmh package
+//   java -jar target/benchmarks.jar -prof gc [regexp, e.g. EngineBenchmarks.search]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EngineBenchmarks
+{
+    @State(Scope.Thread)
+    public static class CorpusState
+    {
+        @Param({"opening", "midgame-a", "midgame-b", "endgame-a", "endgame-b"})
+        public String corpus;
+
+        Engine engine;
+
+        @Setup
+        public void setUp()
+        {
+            engine = Engine.load(corpus, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SearchState
+    {
+        @Param({"opening", "midgame-a", "midgame-b", "endgame-a", "endgame-b"})
+        public String corpus;
+
+        @Param({"2", "4", "6"})
+        public int depth;
+
+        Engine engine;
+
+        @Setup
+        public void setUp()
+        {
+            engine = Engine.load(corpus, depth);
+        }
+    }
+
+    @Benchmark
+    public int generateMoves(CorpusState state)
+    {
+        return state.engine.generateMoves();
+    }
+
+    @Benchmark
+    public long captures(CorpusState state)
+    {
+        return state.engine.captures();
+    }
+
+    @Benchmark
+    public int evaluate(CorpusState state)
+    {
+        return state.engine.evaluate();
+    }
+
+    @Benchmark
+    public long key(CorpusState state)
+    {
+        return state.engine.key();
+    }
+
+    @Benchmark
+    public int search(SearchState state)
+    {
+        return state.engine.search();
+    }
+}
@@ -1,461 +1,511 @@
 import java.util.ArrayList;
 import java.util.List;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class AIPlayer 
 {
     private int depth;
-    private Map<String, TranspositionEntry> transpositionTable = new HashMap<>();
+    private long timeBudgetMillis;
+    private long nodeBudget;
+    private int threads = 1;
+    private TranspositionTable transpositionTable;
+    private AtomicBoolean stopSignal = new AtomicBoolean();
+    private List<SearchWorker> workers = new ArrayList<>();
+    private ExecutorService helperPool;
+    private MoveList rootMoves = new MoveList();
+    private TranspositionEntry entry = new TranspositionEntry();
+    private boolean pondering;
+    private Position lastPosition;
+    private Thread ponderThread;
+    private long ponderKey;
+    private long ponderStart;
+    private boolean verbose;
+    private volatile SearchListener searchListener;
+    private OpeningBook openingBook;
+    private Tablebase tablebase;
+    private int quiescenceBudget = SearchWorker.DEFAULT_QUIESCENCE_BUDGET;
+    private int pruning = SearchWorker.DEFAULT_PRUNING;
+    private int lastBestScore;
+    private volatile SearchStatistics lastStatistics = new SearchStatistics();
     
     public AIPlayer(int depth)
     {
-        this.depth = depth;
+        this(depth, TranspositionTable.DEFAULT_SIZE_MB);
     }
 
-    public Piece[][] makeMove(Piece[][] boardState, List<Piece> movedPieces) 
+    public AIPlayer(int depth, int tableSizeInMegabytes)
     {
-        int bestScore = Integer.MIN_VALUE;
-        Piece[][] bestMove = null;
-    
-        for (Piece[][] successor : getSuccesors(boardState,true)) 
-        {
-            if (movedPieces.contains(getMovedPiece(boardState, successor))) 
-            {
-                continue;
-            }
-            int score = minimax(successor, this.depth - 1, Integer.MIN_VALUE, Integer.MAX_VALUE,false);
-            if (score > bestScore) 
-            {
-                bestScore = score;
-                bestMove = successor;
-            }
-        }
-        Piece moved = getMovedPiece(boardState, bestMove);
-        movedPieces.add(moved);
-        printBoardState(bestMove);
-        System.out.println("AI move chosen. Best score: " + bestScore);
-        return bestMove;
-    } 
+        this(depth, new TranspositionTable(tableSizeInMegabytes));
+    }
 
-    private int minimax(Piece[][] currentState, int depth, int alpha, int beta, boolean isMaximizing) 
+    // The table may be shared with other players, e.g. a PersistentTranspositionTable several engines map.
+    public AIPlayer(int depth, TranspositionTable transpositionTable)
     {
-        String boardHash = hashBoard(currentState);
-        if (transpositionTable.containsKey(boardHash)) 
+        this.depth = Math.min(depth, Position.MAX_PLY);
+        this.transpositionTable = transpositionTable;
+        workers.add(new SearchWorker(0, transpositionTable, stopSignal));
+    }
+
+    // Zero means no limit; the depth given to the constructor always caps the search.
+    public void setTimeBudget(long millis)
+    {
+        this.timeBudgetMillis = millis;
+    }
+
+    public void setNodeBudget(long nodes)
+    {
+        this.nodeBudget = nodes;
+    }
+
+    // With one thread the search is deterministic under a node budget; more threads add Lazy SMP helpers.
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+        while (workers.size() < this.threads) 
         {
-            TranspositionEntry entry = transpositionTable.get(boardHash);
-            if (entry.depth >= depth) 
-            {
-                if (entry.isExact) return entry.value; 
-                if (isMaximizing && entry.value > alpha) alpha = entry.value; 
-                if (!isMaximizing && entry.value < beta) beta = entry.value; 
-                if (alpha >= beta) return entry.value;
-            }
+            SearchWorker worker = new SearchWorker(workers.size(), transpositionTable, stopSignal);
+            worker.setTablebase(tablebase);
+            worker.setQuiescenceBudget(quiescenceBudget);
+            worker.setPruning(pruning);
+            workers.add(worker);
         }
-    
-        if (depth == 0 || isTerminalState(currentState)) 
+        if (helperPool != null) 
         {
-            int eval = evaluate(currentState);
-            transpositionTable.put(boardHash, new TranspositionEntry(eval, depth, true));
-            return eval;
+            helperPool.shutdownNow();
+            helperPool = null;
         }
-    
-        int value;
-        if (isMaximizing) 
+        if (this.threads > 1) 
         {
-            value = Integer.MIN_VALUE;
-            for (Piece[][] successor : getSuccesors(currentState, true)) 
+            helperPool = Executors.newFixedThreadPool(this.threads - 1, runnable -> 
             {
-                int tempValue = minimax(successor, depth - 1, alpha, beta, false);
-                value = Math.max(value, tempValue);
-                if (value >= beta) 
-                    break;
-                alpha = Math.max(alpha, value);
-            }
-        } 
-        else 
-        {
-            value = Integer.MAX_VALUE;
-            for (Piece[][] successor : getSuccesors(currentState, false)) 
-            {
-                int tempValue = minimax(successor, depth - 1, alpha, beta, true);
-                value = Math.min(value, tempValue);
-                if (value <= alpha) 
-                    break;
-                beta = Math.min(beta, value);
-            }
+                Thread thread = new Thread(runnable, "ai-search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
-        boolean isExact = alpha < beta;
-        transpositionTable.put(boardHash, new TranspositionEntry(value, depth, isExact));
-    
-        return value;
     }
 
-    private int evaluate(Piece[][] boardState) 
+    public void setPondering(boolean pondering)
     {
-        int aiScore = 0;
-        int humanScore = 0;
-    
-        for (int row = 0; row < boardState.length; row++) 
+        this.pondering = pondering;
+    }
+
+    // Off by default: prints each chosen board and the search statistics to the console.
+    public void setVerbose(boolean verbose)
+    {
+        this.verbose = verbose;
+    }
+
+    public void setOpeningBook(OpeningBook openingBook)
+    {
+        this.openingBook = openingBook;
+    }
+
+    // Positions the tablebase covers are scored exactly wherever the search reaches them.
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+        for (SearchWorker worker : workers) 
         {
-            for (int col = 0; col < boardState[row].length; col++) 
-            {
-                Piece piece = boardState[row][col];
-                if (piece != null) 
-                {
-                    if (piece.isAIControlled()) 
-                    {
-                        aiScore += calculatePieceScore(piece, row, col, boardState);
-                    } 
-                    
-                    else 
-                    {
-                        humanScore += calculatePieceScore(piece, row, col, boardState);
-                    }
-                }
-            }
+            worker.setTablebase(tablebase);
         }
-    
-        return aiScore - humanScore;
     }
 
-    private int calculatePieceScore(Piece piece, int row, int col, Piece[][] boardState) 
+    // Captures searched past the nominal depth per horizon node; zero turns the capture search off.
+    public void setQuiescenceBudget(int nodes)
     {
-        int score = 100; 
-        int centerRow = boardState.length / 2;
-        int centerCol = boardState[0].length / 2;
-        int distanceFromCenter = Math.abs(row - centerRow) + Math.abs(col - centerCol);
-        score += (10 - distanceFromCenter); 
-        score += evaluateFutureCaptures(boardState, row, col) * 30;
-        score += getDefensiveSupport(boardState, row, col) * 10;
-    
-        return score;
+        this.quiescenceBudget = nodes;
+        for (SearchWorker worker : workers) 
+        {
+            worker.setQuiescenceBudget(nodes);
+        }
     }
 
-    private int getDefensiveSupport(Piece[][] boardState, int row, int col) 
+    // Selective search features from SearchWorker, e.g. SearchWorker.FUTILITY | SearchWorker.MULTI_CUT.
+    public void setPruning(int features)
     {
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        int defense = 0;
-    
-        for (int[] dir : directions) 
+        this.pruning = features;
+        for (SearchWorker worker : workers) 
         {
-            int r = row + dir[0];
-            int c = col + dir[1];
-    
-            if (isWithinBounds(r, c, boardState)) 
-            {
-                Piece adjacent = boardState[r][c];
-                if (adjacent != null && adjacent.isAIControlled() == boardState[row][col].isAIControlled()) 
-                {
-                    defense++;
-                }
-            }
+            worker.setPruning(features);
         }
-    
-        return defense;
     }
 
-    private int evaluateFutureCaptures(Piece[][] boardState, int row, int col) 
+    // Reports the iterations of real searches only; pondering runs silently until it turns into the real search.
+    public void setSearchListener(SearchListener listener)
     {
-        int captureCount = 0;
-        List<int[]> validMoves = getValidMoves(boardState, row, col);
-        for (int[] move : validMoves) 
+        this.searchListener = listener;
+    }
+
+    // Safe to call from any thread; a running makeMove returns its best move so far soon after.
+    public void stop()
+    {
+        stopSignal.set(true);
+    }
+
+    public synchronized void newGame()
+    {
+        stopPondering();
+        lastPosition = null;
+        if (!transpositionTable.isPersistent()) 
         {
-            int newRow = move[0];
-            int newCol = move[1];
-    
-            Piece[][] newState = deepCopyBoard(boardState);
-            newState[newRow][newCol] = boardState[row][col];
-            newState[row][col] = null;
-    
-            List<int[]> capturedPieces = checkCaptureWithoutModify(newState, newRow, newCol);
-            captureCount += capturedPieces.size();
+            transpositionTable.clear();
+        }
+        for (SearchWorker worker : workers) 
+        {
+            worker.clearHistory();
         }
-    
-        return captureCount;
     }
 
-    private  List<int[]> checkCaptureWithoutModify(Piece[][] board, int row, int col) 
+    // cancelled belongs to this one call: the caller raises it, then calls stop, and a search that has not
+    // started yet sees it after clearing the shared stop signal, so a stop raised before that point is not lost.
+    public synchronized Piece[][] makeMove(Piece[][] boardState, List<Piece> movedPieces, int movesLeft, AtomicBoolean cancelled) 
     {
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}; 
-        List<int[]> captures= new ArrayList<>();
+        if (cancelled.get()) 
+        {
+            return boardState;
+        }
+        Position position = Position.fromPieces(boardState, true, movesLeft);
+        int bookMove = movedPieces.isEmpty() ? bookMove(position) : Move.NONE;
+        SearchWorker mainWorker = null;
+        if (bookMove == Move.NONE && ponderThread != null && position.key() == ponderKey && movedPieces.isEmpty()) 
+        {
+            if (verbose) 
+            {
+                System.out.println("AI ponder hit");
+            }
+            mainWorker = finishPondering();
+        }
+        stopPondering();
 
-        for (int[] dir : directions) 
+        if (bookMove == Move.NONE && mainWorker == null) 
         {
-            List<int[]> captureGroup = new ArrayList<>();
-            boolean wallFound = false;
-            boolean friendlyPieceFound = false;
-    
-            int r = row + dir[0];
-            int c = col + dir[1];
-    
-            while (isWithinBounds(r, c, board)) 
+            MoveList moves = new MoveList();
+            position.generateMoves(moves);
+            rootMoves.clear();
+            for (int i = 0; i < moves.size(); i++) 
             {
-                if (board[r][c] == null) 
+                if (!movesPiece(boardState, moves.get(i), movedPieces)) 
                 {
-                    break; 
+                    rootMoves.add(moves.get(i), moves.score(i));
                 }
-    
-                if (board[row][col] != null && board[r][c].isAIControlled() == board[row][col].isAIControlled()) 
+            }
+            if (rootMoves.isEmpty()) 
+            {
+                if (verbose) 
                 {
-                    friendlyPieceFound = true; 
-                    break;
+                    System.out.println("AI has no legal move");
                 }
-    
-                captureGroup.add(new int[]{r, c}); 
-                r += dir[0];
-                c += dir[1];
+                return boardState;
             }
-    
-            if (!isWithinBounds(r, c, board)) 
+            mainWorker = searchRootMoves(position, cancelled);
+        }
+        int bestMove = bookMove != Move.NONE ? bookMove : mainWorker.bestMove();
+        lastBestScore = bookMove != Move.NONE ? openingBook.score(position.canonicalKey()) : mainWorker.bestScore();
+        lastPosition = position.copy();
+        lastPosition.makeMove(bestMove);
+
+        Piece[][] bestState = applyMove(boardState, bestMove);
+        addMovedPiece(bestState, Move.to1(bestMove), movedPieces);
+        if (Move.hasSecond(bestMove)) 
+        {
+            addMovedPiece(bestState, Move.to2(bestMove), movedPieces);
+        }
+        if (verbose) 
+        {
+            printBoardState(bestState);
+            if (mainWorker == null) 
             {
-                wallFound = true; 
+                System.out.println("AI book move. Best score: " + lastBestScore);
             }
-    
-            if (wallFound || friendlyPieceFound) 
+            else 
             {
-                for (int[] pos : captureGroup) 
-                {
-                    captures.add(pos);
-                }
+                System.out.println("AI move chosen. Best score: " + lastBestScore + " at depth " + mainWorker.completedDepth());
+                System.out.println(lastStatistics);
             }
         }
+        return bestState;
+    } 
+
+    // Headless entry point for either side: returns the chosen turn for the side to move, or Move.NONE.
+    public synchronized int chooseMove(Position position) 
+    {
+        stopPondering();
+        Position root = position.copy();
+        root.generateMoves(rootMoves);
+        if (rootMoves.isEmpty()) 
+        {
+            return Move.NONE;
+        }
+        int bestMove = bookMove(root);
+        if (bestMove != Move.NONE) 
+        {
+            lastBestScore = openingBook.score(root.canonicalKey());
+        }
+        else 
+        {
+            SearchWorker mainWorker = searchRootMoves(root, null);
+            bestMove = mainWorker.bestMove();
+            lastBestScore = mainWorker.bestScore();
+        }
+        lastPosition = root.copy();
+        lastPosition.makeMove(bestMove);
+        return bestMove;
+    }
 
-        return captures;
+    // Figures for the most recent search, pondering included, summed over all threads.
+    public SearchStatistics lastStatistics() 
+    {
+        return lastStatistics;
     }
 
-    private boolean isTerminalState(Piece[][] boardState) 
+    public long lastSearchNodes() 
     {
-        int aiPieces = 0, humanPieces = 0;
-    
-        for (Piece[] row : boardState) 
+        return lastStatistics.nodes();
+    }
+
+    // The score of the last move chosen, from the AI's point of view.
+    public int lastBestScore() 
+    {
+        return lastBestScore;
+    }
+
+    // Searches the position after the human's most likely reply to the AI's last move, while the human thinks.
+    public synchronized void startPondering() 
+    {
+        stopPondering();
+        if (!pondering || lastPosition == null || lastPosition.isTerminal()) 
         {
-            for (Piece piece : row) 
-            {
-                if (piece != null) 
-                {
-                    if (piece.isAIControlled()) aiPieces++;
-                    else humanPieces++;
-                }
-            }
+            return;
         }
-    
-        return aiPieces == 0 || humanPieces == 0 || (aiPieces == 1 && humanPieces == 1);
+        Position humanTurn = lastPosition.copy();
+        int predicted = transpositionTable.probe(humanTurn.canonicalKey(), entry) ? resolveMove(humanTurn, entry.move) : Move.NONE;
+        if (predicted == Move.NONE) 
+        {
+            return;
+        }
+        humanTurn.makeMove(predicted);
+        Position ponderPosition = humanTurn.copy();
+        ponderPosition.generateMoves(rootMoves);
+        if (ponderPosition.isTerminal() || rootMoves.isEmpty()) 
+        {
+            return;
+        }
+
+        ponderKey = ponderPosition.key();
+        ponderStart = System.nanoTime();
+        transpositionTable.newSearch();
+        stopSignal.set(false);
+        // Limits and listener are set here, before the thread starts, so finishPondering can only come after them.
+        SearchWorker mainWorker = workers.get(0);
+        mainWorker.setLimits(0, 0);
+        mainWorker.setListener(null);
+        ponderThread = new Thread(() -> search(ponderPosition), "ai-ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
     }
 
-    private List<Piece[][]> getSuccesors(Piece[][] currentState, boolean isAiTurn) 
+    // On a hit the ponder search simply carries on, charged from when pondering started.
+    private SearchWorker finishPondering() 
     {
-        List<Piece[][]> successors = new ArrayList<>();
-        int pieceCount = countPieces(currentState, isAiTurn);
-    
-        for (int row1 = 0; row1 < currentState.length; row1++) 
+        SearchWorker mainWorker = workers.get(0);
+        mainWorker.setListener(searchListener);
+        if (timeBudgetMillis > 0) 
         {
-            for (int col1 = 0; col1 < currentState[row1].length; col1++) 
-            {
-                Piece piece1 = currentState[row1][col1];
-                if (piece1 != null && piece1.isAIControlled() == isAiTurn) 
-                {
-                    List<int[]> validMoves1 = getValidMoves(currentState, row1, col1);
-    
-                    for (int[] move1 : validMoves1) 
-                    {
-                        int newRow1 = move1[0];
-                        int newCol1 = move1[1];
-    
-                        Piece[][] newState1 = deepCopyBoard(currentState);
-                        newState1[newRow1][newCol1] = piece1;
-                        newState1[row1][col1] = null;
-                        checkCapture(newState1, newRow1, newCol1);
-                        if (pieceCount <= 1) 
-                        {
-                            successors.add(newState1);
-                        } 
-                        else 
-                        {
-                            for (int row2 = 0; row2 < newState1.length; row2++) 
-                            {
-                                for (int col2 = 0; col2 < newState1[row2].length; col2++) 
-                                {
-                                    Piece piece2 = newState1[row2][col2];
-                                    if (piece2 != null && piece2.isAIControlled() == isAiTurn && (row2 != newRow1 || col2 != newCol1)) 
-                                    {
-                                        List<int[]> validMoves2 = getValidMoves(newState1, row2, col2);
-    
-                                        for (int[] move2 : validMoves2) 
-                                        {
-                                            int newRow2 = move2[0];
-                                            int newCol2 = move2[1];
-
-                                            Piece[][] newState2 = deepCopyBoard(newState1);
-                                            newState2[newRow2][newCol2] = piece2;
-                                            newState2[row2][col2] = null;
-                                            checkCapture(newState2, newRow2, newCol2);
-    
-                                            successors.add(newState2);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            mainWorker.shortenDeadline(ponderStart + timeBudgetMillis * 1_000_000L);
         }
-        return successors;
+        else if (nodeBudget > 0) 
+        {
+            stopSignal.set(true);
+        }
+        joinPondering();
+        return mainWorker.completedDepth() > 0 ? mainWorker : null;
     }
 
-    private void checkCapture(Piece[][] board, int row, int col) 
+    private void stopPondering() 
     {
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}; 
-        List<int[]> captures= new ArrayList<>();
-
-        for (int[] dir : directions) 
+        if (ponderThread != null) 
         {
-            List<int[]> captureGroup = new ArrayList<>();
-            boolean wallFound = false;
-            boolean friendlyPieceFound = false;
-    
-            int r = row + dir[0];
-            int c = col + dir[1];
-    
-            while (isWithinBounds(r, c, board)) 
-            {
-                if (board[r][c] == null) 
-                {
-                    break; 
-                }
-    
-                if (board[row][col] != null && board[r][c].isAIControlled() == board[row][col].isAIControlled()) 
-                {
-                    friendlyPieceFound = true; 
-                    break;
-                }
-    
-                captureGroup.add(new int[]{r, c}); 
-                r += dir[0];
-                c += dir[1];
-            }
-    
-            if (!isWithinBounds(r, c, board)) 
-            {
-                wallFound = true; 
-            }
-    
-            if (wallFound || friendlyPieceFound) 
-            {
-                for (int[] pos : captureGroup) 
-                {
-                    captures.add(pos);
-                }
-            }
+            stopSignal.set(true);
+            joinPondering();
         }
-    
-        for (int[] dir : directions) 
-        {
-            List<int[]> captureGroup = new ArrayList<>();
-            boolean wallFound = false;
-            boolean opponentPieceFound = false;
-
-            int adjRow = row + dir[0];
-            int adjCol = col + dir[1];
-            int oppRow = row - dir[0];
-            int oppCol = col - dir[1];
-            
-            if(!isWithinBounds(adjRow, adjCol, board) || (board[adjRow][adjCol] != null && board[adjRow][adjCol].isAIControlled() != board[row][col].isAIControlled()))
-            {
-                while (isWithinBounds(oppRow, oppCol, board)) 
-                {
-                    if (board[oppRow][oppCol] == null) 
-                    {
-                        break; 
-                    }
-        
-                    if (board[row][col] != null && board[oppRow][oppCol].isAIControlled() != board[row][col].isAIControlled()) 
-                    {
-                        opponentPieceFound = true; 
-                        break;
-                    }
-        
-                    captureGroup.add(new int[]{oppRow, oppCol}); 
-                    oppRow -= dir[0];
-                    oppCol -= dir[1];
-                }
+    }
 
-                if (!isWithinBounds(oppRow, oppCol, board)) 
-                {
-                    wallFound = true; 
-                }
-        
-                if (wallFound || opponentPieceFound) 
-                {
-                    captureGroup.add(new int[]{row, col});
-                    for (int[] pos : captureGroup) 
-                    {
-                        captures.add(pos);
-                    }
-                    break;
-                }
-            }
+    private void joinPondering() 
+    {
+        try 
+        {
+            ponderThread.join();
+        } 
+        catch (InterruptedException e) 
+        {
+            Thread.currentThread().interrupt();
         }
+        ponderThread = null;
+    }
 
-        for (int[] pos : captures) 
+    // Book entries are checked against the generated moves, so a stale book or a key collision cannot play an illegal move.
+    private int bookMove(Position position) 
+    {
+        if (openingBook == null) 
+        {
+            return Move.NONE;
+        }
+        int move = resolveMove(position, openingBook.probe(position.canonicalKey()));
+        if (move != Move.NONE) 
         {
-            board[pos[0]][pos[1]] = null;
+            lastStatistics = new SearchStatistics();
         }
+        return move;
     }
-    
-    private boolean isWithinBounds(int row, int col, Piece[][] board) 
+
+    // Turns a move stored under the canonical key back into this position's orientation and finds it among the
+    // generated moves, either step order included, or returns Move.NONE if it is not legal here.
+    private int resolveMove(Position position, int storedMove) 
     {
-        return row >= 0 && row < board.length && col >= 0 && col < board[0].length;
+        if (storedMove == Move.NONE) 
+        {
+            return Move.NONE;
+        }
+        int move = Symmetry.move(storedMove, position.canonicalSymmetry());
+        MoveList moves = new MoveList();
+        position.generateMoves(moves);
+        int swapped = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) 
+        {
+            if (moves.get(i) == move) 
+            {
+                return move;
+            }
+            if (moves.get(i) == Move.swapSteps(move)) 
+            {
+                swapped = moves.get(i);
+            }
+        }
+        return swapped;
     }
 
-    private List<int[]> getValidMoves(Piece[][] boardState, int row, int col) 
+    private SearchWorker searchRootMoves(Position position, AtomicBoolean cancelled) 
     {
-        List<int[]> moves = new ArrayList<>();
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        long deadline = timeBudgetMillis > 0 ? System.nanoTime() + timeBudgetMillis * 1_000_000L : 0;
+        transpositionTable.newSearch();
+        stopSignal.set(false);
+        if (cancelled != null && cancelled.get()) 
+        {
+            stopSignal.set(true);
+        }
+        SearchWorker mainWorker = workers.get(0);
+        mainWorker.setLimits(deadline, nodeBudget);
+        mainWorker.setListener(searchListener);
+        return search(position);
+    }
 
-        for (int[] dir : directions) 
+    // The caller clears stopSignal and sets worker 0's limits first, so nothing the search thread does can undo a
+    // stop or a deadline raised after it was started.
+    private SearchWorker search(Position position) 
+    {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) 
         {
-            int newRow = row + dir[0];
-            int newCol = col + dir[1];
+            SearchWorker helper = workers.get(i);
+            Position helperPosition = position.copy();
+            helper.setLimits(0, 0);
+            helpers.add(helperPool.submit(() -> helper.search(helperPosition, rootMoves, this.depth)));
+        }
+
+        SearchWorker mainWorker = workers.get(0);
+        mainWorker.search(position, rootMoves, this.depth);
+        stopSignal.set(true);
 
-            if (newRow >= 0 && newRow < boardState.length && newCol >= 0 && newCol < boardState[0].length && boardState[newRow][newCol] == null) 
+        for (Future<?> helper : helpers) 
+        {
+            try 
+            {
+                helper.get();
+            } 
+            catch (Exception e) 
             {
-                moves.add(new int[]{newRow, newCol});
+                System.out.println("AI search helper failed: " + e);
             }
         }
 
-        return moves;
+        SearchStatistics statistics = new SearchStatistics();
+        statistics.copyFrom(mainWorker.statistics());
+        for (int i = 1; i < threads; i++) 
+        {
+            statistics.add(workers.get(i).statistics());
+        }
+        lastStatistics = statistics;
+        if (event.shouldCommit()) 
+        {
+            event.depth = statistics.completedDepth();
+            event.bestMove = Move.toString(mainWorker.bestMove());
+            event.bestScore = mainWorker.bestScore();
+            event.threads = threads;
+            event.nodes = statistics.nodes();
+            event.nodesPerSecond = statistics.nodesPerSecond();
+            event.quiescenceNodes = statistics.quiescenceNodes();
+            event.ttProbes = statistics.ttProbes();
+            event.ttHits = statistics.ttHits();
+            event.ttStores = statistics.ttStores();
+            event.betaCutoffs = statistics.betaCutoffs();
+            event.firstMoveCutoffs = statistics.firstMoveCutoffs();
+            event.researches = statistics.researches();
+            event.reductions = statistics.reductions();
+            event.futilityPrunes = statistics.futilityPrunes();
+            event.multiCuts = statistics.multiCuts();
+            event.tablebaseHits = statistics.tablebaseHits();
+            event.effectiveBranchingFactor = statistics.effectiveBranchingFactor();
+            event.commit();
+        }
+        return mainWorker;
     }
 
-    private Piece getMovedPiece(Piece[][] previousState, Piece[][] currentState) 
+    // The second step may start where the first ended, in which case it moves the same piece again.
+    private boolean movesPiece(Piece[][] boardState, int move, List<Piece> movedPieces) 
     {
-        for (int row = 0; row < previousState.length; row++) 
+        if (movedPieces.contains(pieceAt(boardState, Move.from1(move)))) 
         {
-            for (int col = 0; col < previousState[row].length; col++) 
-            {
-                if (previousState[row][col] != currentState[row][col] && currentState[row][col] != null) 
-                {
-                    return currentState[row][col];
-                }
-            }
+            return true;
+        }
+        if (!Move.hasSecond(move)) 
+        {
+            return false;
         }
-        return null;
+        int from2 = Move.from2(move) == Move.to1(move) ? Move.from1(move) : Move.from2(move);
+        return movedPieces.contains(pieceAt(boardState, from2));
     }
 
-    private int countPieces(Piece[][] boardState, boolean isAIControlled)
+    private static Piece pieceAt(Piece[][] boardState, int square) 
     {
-        int count = 0;
-        for (int row = 0; row < boardState.length; row++) 
+        return boardState[Bitboard.row(square)][Bitboard.col(square)];
+    }
+
+    // A step that captures the moving piece itself leaves its square empty, and there is nothing to record.
+    private void addMovedPiece(Piece[][] boardState, int square, List<Piece> movedPieces) 
+    {
+        Piece piece = pieceAt(boardState, square);
+        if (piece != null) 
         {
-            for (int col = 0; col < boardState[row].length; col++) 
-            {
-                if(boardState[row][col] != null && boardState[row][col].isAIControlled() == isAIControlled)
-                    count++;
-            }
+            movedPieces.add(piece);
         }
-        return count;
+    }
+
+    private Piece[][] applyMove(Piece[][] boardState, int move) 
+    {
+        Piece[][] newState = deepCopyBoard(boardState);
+        Bitboard.applyStep(newState, Move.from1(move), Move.to1(move));
+        if (Move.hasSecond(move)) 
+        {
+            Bitboard.applyStep(newState, Move.from2(move), Move.to2(move));
+        }
+        return newState;
     }
 
     private Piece[][] deepCopyBoard(Piece[][] boardState) 
@@ -488,28 +538,4 @@ public class AIPlayer
         }
         System.out.println();
     }
-
-    private String hashBoard(Piece[][] boardState) 
-    {
-        StringBuilder sb = new StringBuilder();
-        for (Piece[] row : boardState) 
-        {
-            for (Piece piece : row) 
-            {
-                if (piece == null) 
-                {
-                    sb.append("0");
-                }
-                else if (piece.isAIControlled()) 
-                {
-                    sb.append("1");
-                } 
-                else 
-                {
-                    sb.append("2");
-                }
-            }
-        }
-        return sb.toString();
-    }
 }
@@ -0,0 +1,290 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// A rough smoke timer for the engine hot paths over the BenchmarkCorpus positions, for a quick before/after
+// comparison on one machine without a build. It is not the JMH suite: there is no blackhole beyond a volatile
+// sink, and allocation is the thread's allocated-bytes counter read around each timed iteration, not the GC
+// profiler. Differences of a few percent are noise; confirm anything that matters with the JMH benchmarks in
+// benchmarks.EngineBenchmarks (mvn -Pjmh package, then java -jar target/benchmarks.jar -prof gc).
+//
+// Each benchmark runs in --forks fresh JVMs of its own (same class path and JVM options), so the operation
+// call site in runBatch only ever sees one operation and JIT state does not leak from one benchmark into the
+// next. The iterations of all forks are pooled into one mean and 95% interval. --forks 0 runs everything in
+// this JVM, which is faster but lets earlier benchmarks skew later ones.
+//
+//   java -Xms1g -Xmx1g Benchmark [--forks 1] [--warmup 5] [--iterations 10] [--time 500] [--depths 2,4,6]
+//                                [--filter search]
+public class Benchmark
+{
+    private static volatile long sink;
+
+    private int warmupIterations = 5;
+    private int iterations = 10;
+    private long iterationMillis = 500;
+    private int[] depths = {2, 4, 6};
+    private String filter = "";
+    private int forks = 1;
+    private String only;
+    private List<String> arguments = new ArrayList<>();
+
+    private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private interface Operation
+    {
+        long run();
+    }
+
+    public static void main(String[] args)
+    {
+        Benchmark benchmark = new Benchmark();
+        if (args.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("Option " + args[args.length - 1] + " needs a value");
+        }
+        for (int i = 0; i < args.length; i += 2)
+        {
+            String value = args[i + 1];
+            if (!args[i].equals("--forks") && !args[i].equals("--only"))
+            {
+                benchmark.arguments.add(args[i]);
+                benchmark.arguments.add(value);
+            }
+            switch (args[i])
+            {
+                case "--warmup":
+                    benchmark.warmupIterations = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    benchmark.iterations = Integer.parseInt(value);
+                    break;
+                case "--time":
+                    benchmark.iterationMillis = Long.parseLong(value);
+                    break;
+                case "--depths":
+                    String[] parts = value.split(",");
+                    benchmark.depths = new int[parts.length];
+                    for (int d = 0; d < parts.length; d++)
+                    {
+                        benchmark.depths[d] = Integer.parseInt(parts[d].trim());
+                    }
+                    break;
+                case "--filter":
+                    benchmark.filter = value;
+                    break;
+                case "--forks":
+                    benchmark.forks = Integer.parseInt(value);
+                    break;
+                case "--only":
+                    benchmark.only = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        benchmark.run();
+    }
+
+    public void run()
+    {
+        if (only == null)
+        {
+            System.out.printf("%-28s %14s %12s %12s%n", "Benchmark", "ns/op", "+/- ns", "B/op");
+        }
+        for (String[] entry : BenchmarkCorpus.POSITIONS)
+        {
+            String name = entry[0];
+            Position position = Position.parse(entry[1]);
+
+            MoveList moves = new MoveList();
+            measure("generateMoves/" + name, () ->
+            {
+                position.generateMoves(moves);
+                return moves.size();
+            });
+
+            long own = position.ownPieces();
+            long opponent = position.opponentPieces();
+            measure("captures/" + name, () ->
+            {
+                long captured = 0;
+                for (long squares = own; squares != 0; squares &= squares - 1)
+                {
+                    captured |= Bitboard.captures(own, opponent, Long.numberOfTrailingZeros(squares));
+                }
+                return captured;
+            });
+
+            long aiPieces = position.aiPieces();
+            long humanPieces = position.humanPieces();
+            measure("evaluate/" + name, () -> Evaluator.evaluate(aiPieces, humanPieces));
+
+            boolean aiTurn = position.isAiTurn();
+            int movesLeft = position.movesLeft();
+            measure("key/" + name, () -> Zobrist.key(aiPieces, humanPieces, aiTurn, movesLeft));
+
+            for (int depth : depths)
+            {
+                // A cleared table and history per call, so every search does the same work.
+                AIPlayer player = new AIPlayer(depth, 1);
+                measure("search/d" + depth + "/" + name, () ->
+                {
+                    player.newGame();
+                    return player.chooseMove(position);
+                });
+            }
+        }
+    }
+
+    private void measure(String name, Operation operation)
+    {
+        if (only != null ? !name.equals(only) : !name.contains(filter))
+        {
+            return;
+        }
+        if (only == null && forks > 0)
+        {
+            fork(name);
+            return;
+        }
+
+        long batch = 1;
+        for (int i = 0; i < warmupIterations; i++)
+        {
+            long start = System.nanoTime();
+            long ops = 0;
+            while (System.nanoTime() - start < iterationMillis * 1_000_000L)
+            {
+                runBatch(operation, batch);
+                ops += batch;
+            }
+            // Size batches to roughly 100 microseconds so the clock reads do not dominate cheap operations.
+            batch = Math.max(1, ops * 100_000L / (System.nanoTime() - start));
+        }
+
+        double[] nanosPerOp = new double[iterations];
+        long allocated = 0;
+        long totalOps = 0;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++)
+        {
+            long bytesBefore = threadBean.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long ops = 0;
+            long elapsed;
+            do
+            {
+                runBatch(operation, batch);
+                ops += batch;
+                elapsed = System.nanoTime() - start;
+            }
+            while (elapsed < iterationMillis * 1_000_000L);
+            allocated += threadBean.getThreadAllocatedBytes(thread) - bytesBefore;
+            totalOps += ops;
+            nanosPerOp[i] = (double) elapsed / ops;
+        }
+        double bytesPerOp = (double) allocated / totalOps;
+        if (only != null)
+        {
+            // Read back by the parent JVM in fork.
+            StringBuilder line = new StringBuilder("RESULT ").append(bytesPerOp);
+            for (double value : nanosPerOp)
+            {
+                line.append(' ').append(value);
+            }
+            System.out.println(line);
+            return;
+        }
+        report(name, nanosPerOp, bytesPerOp);
+    }
+
+    private void fork(String name)
+    {
+        List<Double> nanosPerOp = new ArrayList<>();
+        double bytesPerOp = 0;
+        for (int i = 0; i < forks; i++)
+        {
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Benchmark.class.getName());
+            command.addAll(arguments);
+            command.add("--only");
+            command.add(name);
+            try
+            {
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream())))
+                {
+                    for (String line = output.readLine(); line != null; line = output.readLine())
+                    {
+                        if (!line.startsWith("RESULT "))
+                        {
+                            System.out.println(line);
+                            continue;
+                        }
+                        String[] fields = line.split(" ");
+                        bytesPerOp += Double.parseDouble(fields[1]) / forks;
+                        for (int f = 2; f < fields.length; f++)
+                        {
+                            nanosPerOp.add(Double.parseDouble(fields[f]));
+                        }
+                    }
+                }
+                if (process.waitFor() != 0)
+                {
+                    throw new IllegalStateException("Fork for " + name + " exited with " + process.exitValue());
+                }
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Cannot fork a JVM for " + name, e);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        double[] values = new double[nanosPerOp.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = nanosPerOp.get(i);
+        }
+        report(name, values, bytesPerOp);
+    }
+
+    private static void report(String name, double[] nanosPerOp, double bytesPerOp)
+    {
+        int iterations = nanosPerOp.length;
+        double mean = 0;
+        for (double value : nanosPerOp)
+        {
+            mean += value;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double value : nanosPerOp)
+        {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = iterations > 1 ? 1.96 * Math.sqrt(variance / (iterations - 1) / iterations) : 0;
+        System.out.printf("%-28s %14.1f %12.1f %12.1f%n", name, mean, error, bytesPerOp);
+    }
+
+    private static void runBatch(Operation operation, long batch)
+    {
+        long result = 0;
+        for (long i = 0; i < batch; i++)
+        {
+            result += operation.run();
+        }
+        sink = result;
+    }
+}
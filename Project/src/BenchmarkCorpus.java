@@ -0,0 +1,29 @@
+// The fixed opening, midgame and endgame positions both benchmark harnesses run over: the quick Benchmark
+// timer here and the JMH suite in the jmh source directory, so their numbers describe the same work.
+class BenchmarkCorpus
+{
+    // Positions in Position.parse notation: T for AI triangles, C for human circles, side to move, moves left.
+    static final String[][] POSITIONS = {
+        {"opening", "T.....C/......./T.....C/......./C.....T/......./C.....T ai 50"},
+        {"midgame-a", "......./.T..C../..C..../...T.../.C..T../....C../.T..... ai 34"},
+        {"midgame-b", "C....../..T..../.C.C.../......./...T.C./......./......T human 27"},
+        {"endgame-a", "......./..T..../......./...C.../......./.C..T../....... ai 12"},
+        {"endgame-b", "......./......./....C../......./..T..../......./C...... human 7"},
+    };
+
+    private BenchmarkCorpus()
+    {
+    }
+
+    static Position position(String name)
+    {
+        for (String[] entry : POSITIONS)
+        {
+            if (entry[0].equals(name))
+            {
+                return Position.parse(entry[1]);
+            }
+        }
+        throw new IllegalArgumentException("No corpus position " + name);
+    }
+}
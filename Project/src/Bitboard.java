@@ -0,0 +1,202 @@
+public class Bitboard
+{
+    public static final int SIZE = 7;
+    public static final int SQUARES = SIZE * SIZE;
+    public static final long FULL = (1L << SQUARES) - 1;
+
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    private static final long FIRST_COLUMN;
+    private static final long LAST_COLUMN;
+
+    // Per square: the orthogonal neighbours, and for each direction the adjacent square and every square
+    // from there to the wall.
+    private static final long[] NEIGHBOURS = new long[SQUARES];
+    private static final long[][] STEPS = new long[4][SQUARES];
+    private static final long[][] RAYS = new long[4][SQUARES];
+
+    static
+    {
+        long first = 0;
+        long last = 0;
+        for (int row = 0; row < SIZE; row++)
+        {
+            first |= 1L << square(row, 0);
+            last |= 1L << square(row, SIZE - 1);
+        }
+        FIRST_COLUMN = first;
+        LAST_COLUMN = last;
+
+        for (int square = 0; square < SQUARES; square++)
+        {
+            for (int direction = UP; direction <= RIGHT; direction++)
+            {
+                STEPS[direction][square] = shift(bit(square), direction);
+                for (long next = STEPS[direction][square]; next != 0; next = shift(next, direction))
+                {
+                    RAYS[direction][square] |= next;
+                }
+                NEIGHBOURS[square] |= STEPS[direction][square];
+            }
+        }
+    }
+
+    private Bitboard()
+    {
+    }
+
+    public static int square(int row, int col)
+    {
+        return row * SIZE + col;
+    }
+
+    public static int row(int square)
+    {
+        return square / SIZE;
+    }
+
+    public static int col(int square)
+    {
+        return square % SIZE;
+    }
+
+    public static long bit(int square)
+    {
+        return 1L << square;
+    }
+
+    public static int count(long mask)
+    {
+        return Long.bitCount(mask);
+    }
+
+    public static long fromPieces(Piece[][] boardState, boolean isAIControlled)
+    {
+        long mask = 0;
+        for (int row = 0; row < boardState.length; row++)
+        {
+            for (int col = 0; col < boardState[row].length; col++)
+            {
+                Piece piece = boardState[row][col];
+                if (piece != null && piece.isAIControlled() == isAIControlled)
+                {
+                    mask |= bit(square(row, col));
+                }
+            }
+        }
+        return mask;
+    }
+
+    public static long shift(long mask, int direction)
+    {
+        switch (direction)
+        {
+            case UP:
+                return mask >>> SIZE;
+            case DOWN:
+                return (mask << SIZE) & FULL;
+            case LEFT:
+                return (mask & ~FIRST_COLUMN) >>> 1;
+            default:
+                return (mask & ~LAST_COLUMN) << 1;
+        }
+    }
+
+    public static int opposite(int direction)
+    {
+        return direction ^ 1;
+    }
+
+    public static long neighbours(int square)
+    {
+        return NEIGHBOURS[square];
+    }
+
+    // The unbroken line of pieces from square towards direction, plus the square that ends it; a line that
+    // runs into the wall has no end square. UP and LEFT walk towards lower squares, DOWN and RIGHT towards higher.
+    private static long line(int square, int direction, long pieces)
+    {
+        long ray = RAYS[direction][square];
+        long gaps = ray & ~pieces;
+        if (gaps == 0)
+        {
+            return ray;
+        }
+        if (direction == DOWN || direction == RIGHT)
+        {
+            long end = gaps & -gaps;
+            return ray & ((end << 1) - 1);
+        }
+        return ray & -Long.highestOneBit(gaps);
+    }
+
+    public static boolean isTerminal(long aiPieces, long humanPieces)
+    {
+        return aiPieces == 0 || humanPieces == 0 || (count(aiPieces) == 1 && count(humanPieces) == 1);
+    }
+
+    // Opponent runs flanked by the piece on square and a friendly piece or the wall.
+    public static long sandwichCaptures(long own, long opponent, int square)
+    {
+        long captures = 0;
+        for (int direction = UP; direction <= RIGHT; direction++)
+        {
+            if ((STEPS[direction][square] & opponent) == 0)
+            {
+                continue;
+            }
+            long line = line(square, direction, opponent);
+            long end = line & ~opponent;
+            if (end == 0 || (end & own) != 0)
+            {
+                captures |= line & opponent;
+            }
+        }
+        return captures;
+    }
+
+    // Every square emptied by the piece that just arrived on square, for both sides: the opponent runs it
+    // sandwiches, then the first run of its own side, it included, that it closes against an opponent or the wall.
+    public static long captures(long own, long opponent, int square)
+    {
+        long captures = sandwichCaptures(own, opponent, square);
+
+        for (int direction = UP; direction <= RIGHT; direction++)
+        {
+            long adjacent = STEPS[direction][square];
+            if (adjacent != 0 && (adjacent & opponent) == 0)
+            {
+                continue;
+            }
+
+            int back = opposite(direction);
+            long line = (STEPS[back][square] & own) != 0 ? line(square, back, own) : STEPS[back][square];
+            long end = line & ~own;
+            if (end == 0 || (end & opponent) != 0)
+            {
+                captures |= (line & own) | bit(square);
+                break;
+            }
+        }
+        return captures;
+    }
+
+    // Moves the piece on from to the empty square to and clears every square the step captures, as in a turn of
+    // the game, and returns those squares.
+    public static long applyStep(Piece[][] boardState, int from, int to)
+    {
+        Piece piece = boardState[row(from)][col(from)];
+        boardState[row(to)][col(to)] = piece;
+        boardState[row(from)][col(from)] = null;
+        long captured = captures(fromPieces(boardState, piece.isAIControlled()), fromPieces(boardState, !piece.isAIControlled()), to);
+        for (long squares = captured; squares != 0; squares &= squares - 1)
+        {
+            int square = Long.numberOfTrailingZeros(squares);
+            boardState[row(square)][col(square)] = null;
+        }
+        return captured;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.SplittableRandom;
+
+// Checks that the score Position keeps up to date in makeMove and unmakeMove is exactly what Evaluator finds
+// on a freshly built position. Each game is a random walk from the start that now and then takes a few turns
+// back before going on, and is unwound to the root at the end; the score is compared after every step.
+// Exits with status 1 on the first mismatch.
+//
+//   java EvaluationCheck [--games 2000] [--seed 1] [--position "T.....C/.../C.....T ai 50"]
+public class EvaluationCheck
+{
+    private int games = 2000;
+    private long seed = 1;
+    private Position root = Position.startPosition();
+    private long steps;
+
+    public static void main(String[] args)
+    {
+        EvaluationCheck check = new EvaluationCheck();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--games":
+                    check.games = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    check.seed = Long.parseLong(args[++i]);
+                    break;
+                case "--position":
+                    check.root = Position.parse(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (!check.run())
+        {
+            System.exit(1);
+        }
+    }
+
+    public boolean run()
+    {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        MoveList moves = new MoveList();
+        for (int game = 0; game < games; game++)
+        {
+            Position position = root.copy();
+            if (!matches(position, game))
+            {
+                return false;
+            }
+            while (!position.isGameOver())
+            {
+                if (position.ply() > 0 && random.nextInt(8) == 0)
+                {
+                    for (int back = 1 + random.nextInt(3); back > 0 && position.ply() > 0; back--)
+                    {
+                        position.unmakeMove();
+                        if (!matches(position, game))
+                        {
+                            return false;
+                        }
+                    }
+                    continue;
+                }
+                position.generateMoves(moves);
+                if (moves.isEmpty())
+                {
+                    break;
+                }
+                position.makeMove(moves.get(random.nextInt(moves.size())));
+                if (!matches(position, game))
+                {
+                    return false;
+                }
+            }
+            while (position.ply() > 0)
+            {
+                position.unmakeMove();
+                if (!matches(position, game))
+                {
+                    return false;
+                }
+            }
+        }
+        System.out.printf("%,d games, %,d positions compared, no mismatches, %.1f s%n", games, steps, (System.nanoTime() - start) / 1e9);
+        return true;
+    }
+
+    private boolean matches(Position position, int game)
+    {
+        steps++;
+        Position fresh = new Position(position.aiPieces(), position.humanPieces(), position.isAiTurn(), position.movesLeft());
+        int expected = Evaluator.evaluate(position.aiPieces(), position.humanPieces());
+        if (position.evaluation() == expected && fresh.evaluation() == expected)
+        {
+            return true;
+        }
+        System.out.printf("Game %d, ply %d: incremental %d, fresh position %d, Evaluator %d%n  ai %s, human %s, %s to move, %d moves left%n",
+            game, position.ply(), position.evaluation(), fresh.evaluation(), expected, Long.toHexString(position.aiPieces()),
+            Long.toHexString(position.humanPieces()), position.isAiTurn() ? "AI" : "human", position.movesLeft());
+        return false;
+    }
+}
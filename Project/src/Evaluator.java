@@ -0,0 +1,76 @@
+public class Evaluator 
+{
+    private static final long[] INFLUENCE = new long[Bitboard.SQUARES];
+
+    static 
+    {
+        for (int square = 0; square < Bitboard.SQUARES; square++) 
+        {
+            for (int other = 0; other < Bitboard.SQUARES; other++) 
+            {
+                if (Math.abs(Bitboard.row(square) - Bitboard.row(other)) <= 1 || Math.abs(Bitboard.col(square) - Bitboard.col(other)) <= 1) 
+                {
+                    INFLUENCE[square] |= Bitboard.bit(other);
+                }
+            }
+        }
+    }
+
+    private Evaluator()
+    {
+    }
+
+    // Pieces whose score can change when square changes: a piece's score only looks along the rows and
+    // columns through its neighbouring squares, so only pieces within one row or column of square are affected.
+    public static long influence(int square) 
+    {
+        return INFLUENCE[square];
+    }
+
+    // The full rescan, kept as the reference the incremental score in Position must always agree with.
+    public static int evaluate(long aiPieces, long humanPieces) 
+    {
+        return sideScore(aiPieces, humanPieces) - sideScore(humanPieces, aiPieces);
+    }
+
+    private static int sideScore(long own, long opponent) 
+    {
+        int score = 0;
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) 
+        {
+            score += calculatePieceScore(Long.numberOfTrailingZeros(pieces), own, opponent);
+        }
+        return score;
+    }
+
+    public static int calculatePieceScore(int square, long own, long opponent) 
+    {
+        int score = 100; 
+        int center = Bitboard.SIZE / 2;
+        int distanceFromCenter = Math.abs(Bitboard.row(square) - center) + Math.abs(Bitboard.col(square) - center);
+        score += (10 - distanceFromCenter); 
+        score += evaluateFutureCaptures(square, own, opponent) * 30;
+        score += Bitboard.count(Bitboard.neighbours(square) & own) * 10;
+    
+        return score;
+    }
+
+    private static int evaluateFutureCaptures(int square, long own, long opponent) 
+    {
+        int captureCount = 0;
+        long from = Bitboard.bit(square);
+        for (long targets = getValidMoves(square, own | opponent); targets != 0; targets &= targets - 1) 
+        {
+            int target = Long.numberOfTrailingZeros(targets);
+            long moved = own ^ from ^ Bitboard.bit(target);
+            captureCount += Bitboard.count(Bitboard.sandwichCaptures(moved, opponent, target));
+        }
+    
+        return captureCount;
+    }
+
+    private static long getValidMoves(int square, long occupied) 
+    {
+        return Bitboard.neighbours(square) & ~occupied;
+    }
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Reading and writing the fixed-size headers at the start of the engine's data files (opening book, tablebase,
+// persistent transposition table); each file type still checks its own magic, version and layout.
+class FileHeaders
+{
+    private FileHeaders()
+    {
+    }
+
+    // Stamped into every file that stores position keys. Keys from other Zobrist tables would silently miss or,
+    // worse, hit the wrong positions, so a file whose fingerprint differs must not be used.
+    static long keyFingerprint()
+    {
+        return Position.startPosition().key();
+    }
+
+    // The first bytes of the file; the buffer still has room left when the file is shorter than that.
+    static ByteBuffer read(FileChannel channel, int bytes) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(bytes);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+        {
+        }
+        return header;
+    }
+
+    static void write(FileChannel channel, ByteBuffer header) throws IOException
+    {
+        while (header.hasRemaining())
+        {
+            channel.write(header, header.position());
+        }
+    }
+}
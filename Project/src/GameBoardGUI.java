@@ -1,10 +1,25 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GameBoardGUI extends JFrame 
 {
+    private static final int MAX_SEARCH_DEPTH = 32;
+    private static final long AI_TIME_BUDGET_MILLIS = 1500;
+    private static final String OPENING_BOOK_FILE = "opening.book";
+    private static final String TABLEBASE_FILE = "endgame.tb";
+
     private JPanel boardPanel;
     private JButton[][] boardButtons;
     private JLabel moveCountLabel;
@@ -13,7 +28,13 @@ public class GameBoardGUI extends JFrame
     private int selectedRow = -1;       
     private int selectedCol = -1;
     private int moves = 50;
+    private int iconSize = 60;
+    private int displayedIconSize;
+    private final Piece[][] displayedState = new Piece[7][7];
     private AIPlayer ai;    
+    private SwingWorker<Piece[][], String> aiWorker;
+    private AtomicBoolean aiCancelled;
+    private JLabel searchStatusLabel;
     private boolean isAiTurn = true;
     private int humanMoveCount = 2;
     private List<Piece> movedPiecesByAI = new ArrayList<>();
@@ -23,10 +44,22 @@ public class GameBoardGUI extends JFrame
     {
         super("Strategic Board Game");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() 
+        {
+            @Override
+            public void windowClosing(WindowEvent e) 
+            {
+                cancelAiMove();
+            }
+        });
         setSize(600, 600);
 
         initializeBoard();
-        ai = new AIPlayer(3);
+        ai = new AIPlayer(MAX_SEARCH_DEPTH);
+        ai.setTimeBudget(AI_TIME_BUDGET_MILLIS);
+        ai.setPondering(true);
+        loadOpeningBook();
+        loadTablebase();
 
         if(isAiTurn)
         {
@@ -46,6 +79,8 @@ public class GameBoardGUI extends JFrame
         updateMoveCountLabel(); 
         JPanel infoPanel = new JPanel(new BorderLayout());
         infoPanel.add(moveCountLabel, BorderLayout.CENTER);
+        searchStatusLabel = new JLabel(" ");
+        infoPanel.add(searchStatusLabel, BorderLayout.SOUTH);
         add(infoPanel, BorderLayout.NORTH);
 
         for (int row = 0; row < 7; row++) 
@@ -59,15 +94,11 @@ public class GameBoardGUI extends JFrame
              
                 if ((col == 0 && (row == 0 || row == 2 )) || (col == 6 && (row == 4 || row == 6 ))) 
                 { 
-                    TrianglePiece piece = new TrianglePiece();
-                    setPieceOnButton(boardButtons[row][col], piece);
-                    boardState[row][col] = piece;
+                    boardState[row][col] = new TrianglePiece();
                 } 
                 else if ((col == 0 && (row == 4 || row == 6 )) || (col == 6 && (row == 0 || row == 2 ))) 
                 { 
-                    CirclePiece piece = new CirclePiece();
-                    setPieceOnButton(boardButtons[row][col], piece);
-                    boardState[row][col] = piece;
+                    boardState[row][col] = new CirclePiece();
                 }
                 else 
                 {
@@ -82,13 +113,60 @@ public class GameBoardGUI extends JFrame
             }
         }
 
+        redrawBoard();
         add(boardPanel, BorderLayout.CENTER);
+        boardPanel.addComponentListener(new ComponentAdapter() 
+        {
+            @Override
+            public void componentResized(ComponentEvent e) 
+            {
+                // From the panel itself: its buttons may not have been laid out to the new size yet.
+                Insets insets = boardPanel.getInsets();
+                int cellWidth = (boardPanel.getWidth() - insets.left - insets.right) / 7;
+                int cellHeight = (boardPanel.getHeight() - insets.top - insets.bottom) / 7;
+                int size = Math.max(16, Math.min(cellWidth, cellHeight) * 3 / 4);
+                if (size != iconSize) 
+                {
+                    iconSize = size;
+                    redrawBoard();
+                }
+            }
+        });
     }
 
-    private void setPieceOnButton(JButton button, Piece piece) 
+    // The book is optional: without the file, or with one that does not match, the AI simply searches from move one.
+    private void loadOpeningBook() 
     {
-        button.setIcon(resizeIcon(piece.getIcon(), 60, 60));
-        button.putClientProperty("piece", piece);
+        Path path = Paths.get(OPENING_BOOK_FILE);
+        if (!Files.isRegularFile(path)) 
+        {
+            return;
+        }
+        try 
+        {
+            ai.setOpeningBook(OpeningBook.open(path));
+        } 
+        catch (IOException e) 
+        {
+            System.out.println("Opening book not loaded: " + e.getMessage());
+        }
+    }
+
+    private void loadTablebase() 
+    {
+        Path path = Paths.get(TABLEBASE_FILE);
+        if (!Files.isRegularFile(path)) 
+        {
+            return;
+        }
+        try 
+        {
+            ai.setTablebase(Tablebase.open(path));
+        } 
+        catch (IOException e) 
+        {
+            System.out.println("Tablebase not loaded: " + e.getMessage());
+        }
     }
 
     private void updateMoveCountLabel() 
@@ -114,22 +192,18 @@ public class GameBoardGUI extends JFrame
         } 
         else if (selectedPiece != null) 
         {
-            if (isAdjacent(row, col, selectedRow, selectedCol) && boardState[row][col] == null)
+            int from = Bitboard.square(selectedRow, selectedCol);
+            int to = Bitboard.square(row, col);
+            if ((Bitboard.neighbours(from) & Bitboard.bit(to)) != 0 && boardState[row][col] == null)
             {
                 System.out.println("Moving piece to (" + row + ", " + col + ")");
-        
-                boardButtons[selectedRow][selectedCol].setIcon(null);
-                boardButtons[selectedRow][selectedCol].putClientProperty("piece", null);
-                setPieceOnButton(clickedButton, selectedPiece);
 
-                boardState[row][col] = selectedPiece;
-                boardState[selectedRow][selectedCol] = null;
+                Bitboard.applyStep(boardState, from, to);
         
                 selectedPiece = null;
                 selectedRow = -1;
                 selectedCol = -1;
 
-                checkCapture(boardState, row, col);
                 redrawBoard();
 
                 humanMoveCount--;
@@ -147,146 +221,139 @@ public class GameBoardGUI extends JFrame
         printBoardState();
     }
 
-    private void checkCapture(Piece[][] board, int row, int col) 
+    private void aiMove()
     {
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}; 
-        List<int[]> captures= new ArrayList<>();
+        System.out.println("AI is making its move...");
+        searchStatusLabel.setText("AI is thinking...");
+        Piece[][] searchState = new Piece[boardState.length][];
+        for (int row = 0; row < boardState.length; row++) 
+        {
+            searchState[row] = boardState[row].clone();
+        }
+        int movesLeft = moves;
+        // Charged for the pieces the AI has before its turn, as Position.turnCost does, even if it captures its own.
+        int turnCost = countPieces(true) > 1 ? 2 : 1;
+        // The search gets its own copies; the event thread may clear its lists while the search is running.
+        List<Piece> searchMovedPieces = new ArrayList<>(movedPiecesByAI);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        aiCancelled = cancelled;
 
-        for (int[] dir : directions) 
+        aiWorker = new SwingWorker<Piece[][], String>() 
         {
-            List<int[]> captureGroup = new ArrayList<>();
-            boolean wallFound = false;
-            boolean friendlyPieceFound = false;
-    
-            int r = row + dir[0];
-            int c = col + dir[1];
-    
-            while (isWithinBounds(r, c, board)) 
+            @Override
+            protected Piece[][] doInBackground() 
             {
-                if (board[r][c] == null) 
-                {
-                    break; 
-                }
-    
-                if (board[row][col] != null && board[r][c].isAIControlled() == board[row][col].isAIControlled()) 
+                if (isCancelled()) 
                 {
-                    friendlyPieceFound = true; 
-                    break;
+                    return null;
                 }
-    
-                captureGroup.add(new int[]{r, c}); 
-                r += dir[0];
-                c += dir[1];
+                ai.setSearchListener((depth, bestMove, bestScore, nodes, elapsedNanos) -> 
+                    publish(String.format("AI depth %d | best %s | score %d | %,d nodes/s", 
+                        depth, Move.toString(bestMove), bestScore, nodes * 1_000_000_000L / Math.max(1, elapsedNanos))));
+                return ai.makeMove(searchState, searchMovedPieces, movesLeft, cancelled);
             }
-    
-            if (!isWithinBounds(r, c, board)) 
-            {
-                wallFound = true; 
-            }
-    
-            if (wallFound || friendlyPieceFound) 
+
+            @Override
+            protected void process(List<String> progress) 
             {
-                for (int[] pos : captureGroup) 
+                if (!isCancelled()) 
                 {
-                    captures.add(pos);
+                    searchStatusLabel.setText(progress.get(progress.size() - 1));
                 }
             }
-        }
-    
-        for (int[] dir : directions) 
-        {
-            List<int[]> captureGroup = new ArrayList<>();
-            boolean wallFound = false;
-            boolean opponentPieceFound = false;
-
-            int adjRow = row + dir[0];
-            int adjCol = col + dir[1];
-            int oppRow = row - dir[0];
-            int oppCol = col - dir[1];
-            
-            if(!isWithinBounds(adjRow, adjCol, board) || (board[adjRow][adjCol] != null && board[adjRow][adjCol].isAIControlled() != board[row][col].isAIControlled()))
+
+            @Override
+            protected void done() 
             {
-                while (isWithinBounds(oppRow, oppCol, board)) 
+                if (isCancelled()) 
                 {
-                    if (board[oppRow][oppCol] == null) 
-                    {
-                        break; 
-                    }
-        
-                    if (board[row][col] != null && board[oppRow][oppCol].isAIControlled() != board[row][col].isAIControlled()) 
-                    {
-                        opponentPieceFound = true; 
-                        break;
-                    }
-        
-                    captureGroup.add(new int[]{oppRow, oppCol}); 
-                    oppRow -= dir[0];
-                    oppCol -= dir[1];
+                    return;
                 }
-
-                if (!isWithinBounds(oppRow, oppCol, board)) 
+                try 
                 {
-                    wallFound = true; 
-                }
-        
-                if (wallFound || opponentPieceFound) 
+                    boardState = get();
+                    movedPiecesByAI = searchMovedPieces;
+                } 
+                catch (Exception e) 
                 {
-                    captureGroup.add(new int[]{row, col});
-                    for (int[] pos : captureGroup) 
-                    {
-                        captures.add(pos);
-                    }
-                    break;
+                    showAiFailure(e instanceof ExecutionException ? e.getCause() : e);
+                    return;
                 }
+                completeAiMove(turnCost);
             }
-        }
-
-        for (int[] pos : captures) 
-        {
-            board[pos[0]][pos[1]] = null;
-        }
-    }
-    
-    private boolean isWithinBounds(int row, int col, Piece[][] board) 
-    {
-        return row >= 0 && row < board.length && col >= 0 && col < board[0].length;
+        };
+        aiWorker.execute();
     }
 
-    private void aiMove()
+    private void completeAiMove(int turnCost)
     {
-        System.out.println("AI is making its move...");
-        if(countPieces(rootPaneCheckingEnabled) > 1)
-        {
-            moves -= 2;
-        }
-        else 
-        {
-            moves--;
-        }
-        boardState = ai.makeMove(boardState, movedPiecesByAI);
+        moves -= turnCost;
         redrawBoard();  
-        checkGameOver();
         movedPiecesByAI.clear();
         isAiTurn = false;
         humanMoveCount = (countPieces(false) > 1) ? 2 : 1;
         updateMoveCountLabel();
         System.out.println("AI completed its turn");
+        ai.startPondering();
+        checkGameOver();
     }
 
+    // The board is untouched when the search fails, so the AI can simply try the same turn again.
+    private void showAiFailure(Throwable failure) 
+    {
+        System.out.println("AI search failed: " + failure);
+        searchStatusLabel.setText("AI search failed: " + failure.getMessage());
+        int option = JOptionPane.showOptionDialog(
+            this,
+            "The AI could not finish its move:\n" + failure + "\nTry the move again or restart the game?",
+            "AI Error",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.ERROR_MESSAGE,
+            null,
+            new Object[]{"Retry", "Restart"},
+            "Retry"
+        );
+
+        if (option == JOptionPane.YES_OPTION) 
+        {
+            aiMove();
+        } 
+        else 
+        {
+            restartGame();
+        }
+    }
+
+    private void cancelAiMove()
+    {
+        if (aiWorker != null && !aiWorker.isDone()) 
+        {
+            aiWorker.cancel(false);
+            aiCancelled.set(true);
+            ai.stop();
+        }
+        aiWorker = null;
+        aiCancelled = null;
+    }
+
+    // Only cells whose piece differs from what the buttons last showed are touched, so a move with its
+    // captures costs a handful of setIcon calls that Swing coalesces into a single repaint.
     private void redrawBoard() 
     {
+        boolean resized = displayedIconSize != iconSize;
+        displayedIconSize = iconSize;
         for (int row = 0; row < boardState.length; row++) 
         {
             for (int col = 0; col < boardState[row].length; col++) 
             {
-                if (boardState[row][col] == null) 
-                {
-                    boardButtons[row][col].setIcon(null);
-                } 
-                else 
+                Piece piece = boardState[row][col];
+                if (!resized && piece == displayedState[row][col]) 
                 {
-                    boardButtons[row][col].setIcon(resizeIcon(boardState[row][col].getIcon(), 60, 60)); 
+                    continue;
                 }
+                displayedState[row][col] = piece;
+                boardButtons[row][col].setIcon(piece == null ? null : PieceIcons.scaled(piece, iconSize));
+                boardButtons[row][col].putClientProperty("piece", piece);
             }
         }
     }
@@ -315,18 +382,6 @@ public class GameBoardGUI extends JFrame
         System.out.println();
     }
 
-    private boolean isAdjacent(int row, int col, int selectedRow, int selectedCol) 
-    {
-        return (Math.abs(row - selectedRow) == 1 && col == selectedCol) || (Math.abs(col - selectedCol) == 1 && row == selectedRow);
-    }
-
-    private ImageIcon resizeIcon(ImageIcon icon, int width, int height) 
-    {
-        Image img = icon.getImage();
-        Image resizedImg = img.getScaledInstance(width, height, java.awt.Image.SCALE_SMOOTH);
-        return new ImageIcon(resizedImg);
-    }
-    
     private int countPieces(boolean isAIControlled)
     {
         int count = 0;
@@ -396,12 +451,12 @@ public class GameBoardGUI extends JFrame
 
     private void restartGame() 
     {
+        cancelAiMove();
         for (int row = 0; row < boardState.length; row++) 
         {
             for (int col = 0; col < boardState[row].length; col++) 
             {
                 boardState[row][col] = null;
-                boardButtons[row][col].setIcon(null);
             }
         }
         for (int row = 0; row < 7; row++) 
@@ -410,15 +465,11 @@ public class GameBoardGUI extends JFrame
             {
                 if ((col == 0 && (row == 0 || row == 2)) || (col == 6 && (row == 4 || row == 6))) 
                 {
-                    TrianglePiece piece = new TrianglePiece();
-                    setPieceOnButton(boardButtons[row][col], piece);
-                    boardState[row][col] = piece;
+                    boardState[row][col] = new TrianglePiece();
                 } 
                 else if ((col == 0 && (row == 4 || row == 6)) || (col == 6 && (row == 0 || row == 2))) 
                 {
-                    CirclePiece piece = new CirclePiece();
-                    setPieceOnButton(boardButtons[row][col], piece);
-                    boardState[row][col] = piece;
+                    boardState[row][col] = new CirclePiece();
                 }
             }
         }
@@ -426,6 +477,7 @@ public class GameBoardGUI extends JFrame
         humanMoveCount = 2;
         movedPieces.clear();
         movedPiecesByAI.clear();
+        ai.newGame();
         isAiTurn = true;
         updateMoveCountLabel();
         redrawBoard();
@@ -0,0 +1,70 @@
+public class Move
+{
+    public static final int NONE = 0;
+    public static final int NO_SQUARE = 63;
+
+    private Move()
+    {
+    }
+
+    // A whole turn packed into an int: up to two single-step moves of six bits per square.
+    public static int encode(int from1, int to1, int from2, int to2)
+    {
+        return 1 << 24 | from1 | to1 << 6 | from2 << 12 | to2 << 18;
+    }
+
+    public static int encode(int from, int to)
+    {
+        return encode(from, to, NO_SQUARE, NO_SQUARE);
+    }
+
+    public static int from1(int move)
+    {
+        return move & 0x3F;
+    }
+
+    public static int to1(int move)
+    {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int from2(int move)
+    {
+        return (move >>> 12) & 0x3F;
+    }
+
+    public static int to2(int move)
+    {
+        return (move >>> 18) & 0x3F;
+    }
+
+    public static boolean hasSecond(int move)
+    {
+        return from2(move) != NO_SQUARE;
+    }
+
+    // The same two steps in the other order; generateMoves keeps only one of them when both end alike.
+    public static int swapSteps(int move)
+    {
+        return hasSecond(move) ? encode(from2(move), to2(move), from1(move), to1(move)) : move;
+    }
+
+    public static String toString(int move)
+    {
+        if (move == NONE)
+        {
+            return "none";
+        }
+        String text = squareName(from1(move)) + "-" + squareName(to1(move));
+        if (hasSecond(move))
+        {
+            text += " " + squareName(from2(move)) + "-" + squareName(to2(move));
+        }
+        return text;
+    }
+
+    private static String squareName(int square)
+    {
+        return "(" + Bitboard.row(square) + ", " + Bitboard.col(square) + ")";
+    }
+}
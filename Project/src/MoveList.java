@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+public class MoveList
+{
+    private int[] moves = new int[256];
+    private int[] scores = new int[256];
+    private int size;
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public void add(int move)
+    {
+        add(move, 0);
+    }
+
+    public void add(int move, int score)
+    {
+        if (size == moves.length)
+        {
+            moves = Arrays.copyOf(moves, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        moves[size] = move;
+        scores[size] = score;
+        size++;
+    }
+
+    public int get(int index)
+    {
+        return moves[index];
+    }
+
+    public int score(int index)
+    {
+        return scores[index];
+    }
+
+    public void setScore(int index, int score)
+    {
+        scores[index] = score;
+    }
+
+    // Selection step: swaps the best scored of the remaining moves into index and returns it.
+    public int pickNext(int index)
+    {
+        int best = index;
+        for (int i = index + 1; i < size; i++)
+        {
+            if (scores[i] > scores[best])
+            {
+                best = i;
+            }
+        }
+        swap(index, best);
+        return moves[index];
+    }
+
+    public void sort()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            pickNext(i);
+        }
+    }
+
+    public void moveToFront(int move)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (moves[i] == move)
+            {
+                int score = scores[i];
+                System.arraycopy(moves, 0, moves, 1, i);
+                System.arraycopy(scores, 0, scores, 1, i);
+                moves[0] = move;
+                scores[0] = score;
+                return;
+            }
+        }
+    }
+
+    public void copyFrom(MoveList other)
+    {
+        clear();
+        for (int i = 0; i < other.size; i++)
+        {
+            add(other.moves[i], other.scores[i]);
+        }
+    }
+
+    // Turns the list left by distance places, wrapping the front moves round to the back.
+    public void rotate(int distance)
+    {
+        if (size < 2 || distance % size == 0)
+        {
+            return;
+        }
+        int[] rotatedMoves = new int[size];
+        int[] rotatedScores = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            rotatedMoves[i] = moves[(i + distance) % size];
+            rotatedScores[i] = scores[(i + distance) % size];
+        }
+        System.arraycopy(rotatedMoves, 0, moves, 0, size);
+        System.arraycopy(rotatedScores, 0, scores, 0, size);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    private void swap(int i, int j)
+    {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
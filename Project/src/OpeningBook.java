@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Best moves for early positions, written by OpeningBookBuilder and read straight from a memory-mapped file.
+// After a 24-byte header the file holds 16-byte entries (canonical position key, move in the canonical
+// orientation, score) sorted by key, so a lookup is a binary search over the mapping and the book costs no heap
+// however large it gets. Mirror images share an entry, see Position.canonicalKey.
+public class OpeningBook
+{
+    private static final int MAGIC = 0x424F4F4B;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer buffer, int size)
+    {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    public static OpeningBook open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_BYTES)
+            {
+                throw new IOException(path + " is not an opening book");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            {
+                throw new IOException(path + " is not an opening book of version " + VERSION);
+            }
+            if (buffer.getLong(8) != FileHeaders.keyFingerprint())
+            {
+                throw new IOException(path + " was built with different position keys");
+            }
+            int size = buffer.getInt(16);
+            if (channel.size() != HEADER_BYTES + (long) size * ENTRY_BYTES)
+            {
+                throw new IOException(path + " is truncated");
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    // Entries must already be sorted by key.
+    public static void write(Path path, long[] keys, int[] moves, int[] scores) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * ENTRY_BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(FileHeaders.keyFingerprint()).putInt(keys.length).putInt(0);
+        for (int i = 0; i < keys.length; i++)
+        {
+            buffer.putLong(keys[i]).putInt(moves[i]).putInt(scores[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    // The book move for the position with this key, or Move.NONE.
+    public int probe(long key)
+    {
+        int index = find(key);
+        return index < 0 ? Move.NONE : buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+    }
+
+    public int score(long key)
+    {
+        int index = find(key);
+        return index < 0 ? 0 : buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 12);
+    }
+
+    private int find(long key)
+    {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long middleKey = buffer.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+            if (middleKey < key)
+            {
+                low = middle + 1;
+            }
+            else if (middleKey > key)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,180 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Builds the opening book offline by deep-searching every position of the first turns from the start.
+// On the book side only the chosen move is followed; on the other side every reply is, so the book
+// answers whatever the opponent plays. With --table, all searches share a persistent transposition table
+// file, so a rebuild starts from what the previous one found.
+//
+//   java OpeningBookBuilder [--turns 4] [--depth 7] [--time 0] [--sides ai|human|both] [--parallel N] [--hash 16]
+//                           [--table FILE] [--output opening.book]
+public class OpeningBookBuilder
+{
+    private int turns = 4;
+    private int depth = 7;
+    private long time;
+    private String sides = "ai";
+    private int parallel = Runtime.getRuntime().availableProcessors();
+    private int hash = 16;
+    private String table;
+    private String output = "opening.book";
+    private PersistentTranspositionTable persistentTable;
+
+    private final ThreadLocal<AIPlayer> engines = ThreadLocal.withInitial(() ->
+    {
+        AIPlayer player = persistentTable != null ? new AIPlayer(depth, persistentTable) : new AIPlayer(depth, hash);
+        player.setTimeBudget(time);
+        return player;
+    });
+
+    public static void main(String[] args) throws Exception
+    {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        if (args.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("Option " + args[args.length - 1] + " needs a value");
+        }
+        for (int i = 0; i < args.length; i += 2)
+        {
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "--turns":
+                    builder.turns = Integer.parseInt(value);
+                    break;
+                case "--depth":
+                    builder.depth = Integer.parseInt(value);
+                    break;
+                case "--time":
+                    builder.time = Long.parseLong(value);
+                    break;
+                case "--sides":
+                    builder.sides = value;
+                    break;
+                case "--parallel":
+                    builder.parallel = Integer.parseInt(value);
+                    break;
+                case "--hash":
+                    builder.hash = Integer.parseInt(value);
+                    break;
+                case "--table":
+                    builder.table = value;
+                    break;
+                case "--output":
+                    builder.output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        builder.run();
+    }
+
+    public void run() throws Exception
+    {
+        long start = System.nanoTime();
+        if (table != null)
+        {
+            persistentTable = PersistentTranspositionTable.open(Paths.get(table), hash, false);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        TreeMap<Long, int[]> book = new TreeMap<>();
+        if (!sides.equals("human"))
+        {
+            build(pool, true, book);
+        }
+        if (!sides.equals("ai"))
+        {
+            build(pool, false, book);
+        }
+        pool.shutdown();
+        if (persistentTable != null)
+        {
+            persistentTable.flush();
+        }
+
+        long[] keys = new long[book.size()];
+        int[] moves = new int[book.size()];
+        int[] scores = new int[book.size()];
+        int i = 0;
+        for (Map.Entry<Long, int[]> entry : book.entrySet())
+        {
+            keys[i] = entry.getKey();
+            moves[i] = entry.getValue()[0];
+            scores[i] = entry.getValue()[1];
+            i++;
+        }
+        OpeningBook.write(Paths.get(output), keys, moves, scores);
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", keys.length, output, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Walks the tree one turn at a time so all searches of a turn run in parallel.
+    private void build(ExecutorService pool, boolean bookForAi, TreeMap<Long, int[]> book) throws Exception
+    {
+        Map<Long, Position> level = new LinkedHashMap<>();
+        Position root = Position.startPosition();
+        level.put(root.canonicalKey(), root);
+        for (int turn = 0; turn < turns && !level.isEmpty(); turn++)
+        {
+            Map<Long, Position> next = new LinkedHashMap<>();
+            List<Position> searched = new ArrayList<>();
+            List<Future<int[]>> results = new ArrayList<>();
+            for (Position position : level.values())
+            {
+                if (position.isGameOver())
+                {
+                    continue;
+                }
+                if (position.isAiTurn() != bookForAi)
+                {
+                    MoveList moves = new MoveList();
+                    position.generateMoves(moves);
+                    for (int i = 0; i < moves.size(); i++)
+                    {
+                        addChild(next, position, moves.get(i));
+                    }
+                }
+                else if (!book.containsKey(position.canonicalKey()))
+                {
+                    searched.add(position);
+                    results.add(pool.submit(() -> search(position)));
+                }
+            }
+            for (int i = 0; i < searched.size(); i++)
+            {
+                int[] result = results.get(i).get();
+                if (result[0] != Move.NONE)
+                {
+                    Position position = searched.get(i);
+                    book.put(position.canonicalKey(), new int[]{Symmetry.move(result[0], position.canonicalSymmetry()), result[1]});
+                    addChild(next, position, result[0]);
+                }
+            }
+            System.out.printf("%s book, turn %d: %d positions searched, %d entries so far%n",
+                bookForAi ? "AI" : "Human", turn + 1, searched.size(), book.size());
+            level = next;
+        }
+    }
+
+    private int[] search(Position position)
+    {
+        AIPlayer player = engines.get();
+        player.newGame();
+        int move = player.chooseMove(position);
+        return new int[]{move, player.lastBestScore()};
+    }
+
+    private static void addChild(Map<Long, Position> level, Position position, int move)
+    {
+        Position child = position.copy();
+        child.makeMove(move);
+        level.putIfAbsent(child.canonicalKey(), child.copy());
+    }
+}
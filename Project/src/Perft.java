@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Counts the positions reachable in exactly N turns, through Position.generateMoves and makeMove. A turn is
+// the whole compound move, so two-piece turns that end in the same position are counted once, as the
+// search sees them. Finished games (a side wiped out or no moves left) have no successors.
+//
+//   java Perft [--depth 3] [--divide] [--threads N] [--no-bulk] [--position "T.....C/.../C.....T ai 50"]
+public class Perft
+{
+    private int depth = 3;
+    private boolean divide;
+    private boolean bulk = true;
+    private int threads = 1;
+    private Position root = Position.startPosition();
+
+    public static void main(String[] args) throws Exception
+    {
+        Perft perft = new Perft();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--depth":
+                    perft.depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--divide":
+                    perft.divide = true;
+                    break;
+                case "--no-bulk":
+                    perft.bulk = false;
+                    break;
+                case "--threads":
+                    perft.threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--position":
+                    perft.root = Position.parse(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        perft.run();
+    }
+
+    public void run() throws Exception
+    {
+        long start = System.nanoTime();
+        long total = threads > 1 || divide ? divide(root, depth, bulk, threads, divide) : perft(root, depth, bulk);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("perft(%d) = %,d in %.3f s, %,d positions/s%n", depth, total, elapsed / 1e9,
+            total * 1_000_000_000L / Math.max(1, elapsed));
+    }
+
+    public static long perft(Position position, int depth, boolean bulk)
+    {
+        return perft(position, depth, bulk, new MoveList[depth + 1]);
+    }
+
+    // Splits the count by root move; with more than one thread each root move is counted on its own copy.
+    public static long divide(Position position, int depth, boolean bulk, int threads, boolean print) throws Exception
+    {
+        if (depth == 0 || position.isGameOver())
+        {
+            return depth == 0 ? 1 : 0;
+        }
+        MoveList moves = new MoveList();
+        position.generateMoves(moves);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++)
+        {
+            Position child = position.copy();
+            child.makeMove(moves.get(i));
+            counts.add(pool.submit(() -> perft(child, depth - 1, bulk)));
+        }
+
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            long count = counts.get(i).get();
+            if (print)
+            {
+                System.out.println(Move.toString(moves.get(i)) + ": " + count);
+            }
+            total += count;
+        }
+        pool.shutdown();
+        if (print)
+        {
+            System.out.println("Moves: " + moves.size());
+        }
+        return total;
+    }
+
+    private static long perft(Position position, int depth, boolean bulk, MoveList[] lists)
+    {
+        if (depth == 0)
+        {
+            return 1;
+        }
+        if (position.isGameOver())
+        {
+            return 0;
+        }
+        MoveList moves = lists[depth];
+        if (moves == null)
+        {
+            moves = lists[depth] = new MoveList();
+        }
+        position.generateMoves(moves);
+        // The last ply adds one leaf per generated turn, so the turns need not be played.
+        if (bulk && depth == 1)
+        {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            position.makeMove(moves.get(i));
+            nodes += perft(position, depth - 1, bulk, lists);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// A transposition table kept off the heap in a memory-mapped file. Whatever a search stores is in the file for
+// the next run, and every process that opens the file maps the same pages, so engines on one host share what
+// they learn. Entries use the same lock-free XOR check as on the heap, which holds across processes too.
+//
+// The file is a 64-byte header (magic, version, position key fingerprint, bucket count, slots per bucket, entry
+// size) followed by the entries as (stored key, data) pairs of longs. A file of another kind is never touched;
+// one of ours with an outdated layout or different position keys is replaced by a fresh one, or refused when
+// opened read-only.
+public class PersistentTranspositionTable extends TranspositionTable
+{
+    private static final int MAGIC = 0x54544142;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    // Keeps the whole file addressable by one mapping.
+    private static final int MAX_BUCKETS = 1 << 25;
+
+    private final MappedByteBuffer buffer;
+    private final boolean readOnly;
+
+    private PersistentTranspositionTable(int buckets, MappedByteBuffer buffer, boolean readOnly)
+    {
+        super(buckets, false);
+        this.buffer = buffer;
+        this.readOnly = readOnly;
+    }
+
+    // Creates the file with room for sizeInMegabytes if it does not exist; an existing file keeps its own size.
+    // A read-only table is probed but never written, for processes that only benefit from the others' work.
+    public static synchronized PersistentTranspositionTable open(Path path, int sizeInMegabytes, boolean readOnly)
+        throws IOException
+    {
+        if (readOnly)
+        {
+            return map(path, true);
+        }
+        // Writers check, replace and map the file one at a time, across processes through a lock on a file beside
+        // it. Two engines starting together on a stale table would otherwise both rename a fresh one into place,
+        // and the first would go on writing into a file no one else can see.
+        try (FileChannel lock = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            lock.lock();
+            if (validate(path) != null)
+            {
+                replace(path, buckets(sizeInMegabytes, MAX_BUCKETS));
+            }
+            return map(path, false);
+        }
+    }
+
+    private static PersistentTranspositionTable map(Path path, boolean readOnly) throws IOException
+    {
+        try (FileChannel channel = readOnly
+            ? FileChannel.open(path, StandardOpenOption.READ)
+            : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            String problem = validate(channel, path);
+            if (problem != null)
+            {
+                throw new IOException(path + " is " + problem);
+            }
+            int buckets = FileHeaders.read(channel, HEADER_BYTES).getInt(16);
+            MappedByteBuffer buffer = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+                0, fileBytes(buckets));
+            return new PersistentTranspositionTable(buckets, buffer, readOnly);
+        }
+    }
+
+    private static String validate(Path path) throws IOException
+    {
+        if (!Files.exists(path))
+        {
+            return "missing";
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            return validate(channel, path);
+        }
+    }
+
+    // Why the file cannot be used as it is, or null if it can.
+    private static String validate(FileChannel channel, Path path) throws IOException
+    {
+        if (channel.size() == 0)
+        {
+            return "empty";
+        }
+        ByteBuffer header = FileHeaders.read(channel, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC)
+        {
+            throw new IOException(path + " is not a transposition table");
+        }
+        if (header.getInt(4) != VERSION || header.getInt(20) != SLOTS || header.getInt(24) != ENTRY_BYTES)
+        {
+            return "from another version";
+        }
+        if (header.getLong(8) != FileHeaders.keyFingerprint())
+        {
+            return "built with different position keys";
+        }
+        int buckets = header.getInt(16);
+        if (buckets <= 0 || buckets > MAX_BUCKETS || Integer.bitCount(buckets) != 1 || channel.size() != fileBytes(buckets))
+        {
+            return "truncated";
+        }
+        return null;
+    }
+
+    // Starts over with an empty table. Other processes may have the old file mapped, and shrinking it under them
+    // would crash them, so the new table is built beside it and renamed over it: their mappings keep the old file,
+    // and everyone who opens the path from now on gets the new one. The entries are a sparse run of zeros, so
+    // this costs no writes.
+    private static void replace(Path path, int buckets) throws IOException
+    {
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporary = directory.resolve(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(FileHeaders.keyFingerprint()).putInt(buckets).putInt(SLOTS)
+                    .putInt(ENTRY_BYTES);
+                header.clear();
+                FileHeaders.write(channel, header);
+                channel.write(ByteBuffer.allocate(1), fileBytes(buckets) - 1);
+                channel.force(false);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static long fileBytes(int buckets)
+    {
+        return HEADER_BYTES + (long) buckets * SLOTS * ENTRY_BYTES;
+    }
+
+    @Override
+    public boolean isPersistent()
+    {
+        return true;
+    }
+
+    public boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    // Writes dirty pages back now; the system does so on its own anyway, even after the process exits.
+    public void flush()
+    {
+        if (!readOnly)
+        {
+            buffer.force();
+        }
+    }
+
+    @Override
+    long keyAt(int slot)
+    {
+        return buffer.getLong(HEADER_BYTES + slot * ENTRY_BYTES);
+    }
+
+    @Override
+    long dataAt(int slot)
+    {
+        return buffer.getLong(HEADER_BYTES + slot * ENTRY_BYTES + 8);
+    }
+
+    @Override
+    void put(int slot, long storedKey, long packed)
+    {
+        if (!readOnly)
+        {
+            buffer.putLong(HEADER_BYTES + slot * ENTRY_BYTES, storedKey);
+            buffer.putLong(HEADER_BYTES + slot * ENTRY_BYTES + 8, packed);
+        }
+    }
+
+    @Override
+    void clearEntries()
+    {
+        if (!readOnly)
+        {
+            for (int offset = HEADER_BYTES; offset < buffer.capacity(); offset += 8)
+            {
+                buffer.putLong(offset, 0);
+            }
+        }
+    }
+}
@@ -3,14 +3,14 @@ import javax.swing.ImageIcon;
 public class Piece
 {
     private String type; 
-    private ImageIcon icon;
+    private String iconPath;
     private boolean isAIControlled; 
 
     public Piece(String type, String iconPath, boolean isAIControlled) 
     
     {
         this.type = type;
-        this.icon = new ImageIcon(getClass().getResource(iconPath));
+        this.iconPath = iconPath;
         this.isAIControlled = isAIControlled;
     }
 
@@ -19,9 +19,10 @@ public class Piece
         return isAIControlled;
     }
 
+    // Loaded on first use so pieces can be created in a headless JVM, and shared between pieces of a type.
     public ImageIcon getIcon() 
     {
-        return icon;
+        return PieceIcons.original(iconPath);
     }
 
     public String getType() 
@@ -0,0 +1,45 @@
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PieceIcons 
+{
+    private static final Map<String, ImageIcon> originals = new HashMap<>();
+    private static final Map<String, ImageIcon> scaled = new HashMap<>();
+    private static int scaledSize = -1;
+
+    private PieceIcons()
+    {
+    }
+
+    // Each PNG is decoded once and shared by every piece of that type, across restarts.
+    public static synchronized ImageIcon original(String iconPath) 
+    {
+        return originals.computeIfAbsent(iconPath, path -> new ImageIcon(PieceIcons.class.getResource(path)));
+    }
+
+    // Only the current cell size is kept; a resize drops the old scaled icons instead of piling them up.
+    public static synchronized ImageIcon scaled(Piece piece, int size) 
+    {
+        if (size != scaledSize) 
+        {
+            scaled.clear();
+            scaledSize = size;
+        }
+        return scaled.computeIfAbsent(piece.getType(), type -> scale(piece.getIcon(), size));
+    }
+
+    private static ImageIcon scale(ImageIcon icon, int size) 
+    {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(icon.getImage(), 0, 0, size, size, null);
+        graphics.dispose();
+        return new ImageIcon(image);
+    }
+}
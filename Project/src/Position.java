@@ -0,0 +1,455 @@
+import java.util.Arrays;
+
+public class Position
+{
+    public static final int MAX_PLY = 128;
+    public static final int START_MOVES = 50;
+
+    private long aiPieces;
+    private long humanPieces;
+    // The key of this position seen through each Symmetry; keys[Symmetry.IDENTITY] is its own.
+    private final long[] keys = new long[Symmetry.COUNT];
+    private int movesLeft;
+    private boolean aiTurn;
+
+    private final int[] undoMoves = new int[MAX_PLY];
+    private final long[] undoOwnCaptured1 = new long[MAX_PLY];
+    private final long[] undoOpponentCaptured1 = new long[MAX_PLY];
+    private final long[] undoOwnCaptured2 = new long[MAX_PLY];
+    private final long[] undoOpponentCaptured2 = new long[MAX_PLY];
+    private final long[] undoKeys = new long[MAX_PLY * Symmetry.COUNT];
+    private final int[] undoMovesLeft = new int[MAX_PLY];
+    private int ply;
+
+    private final int[] pieceScores = new int[Bitboard.SQUARES];
+    private int evaluation;
+    private final int[] undoEvaluations = new int[MAX_PLY];
+    private final int[] undoScoreStarts = new int[MAX_PLY];
+    private final int[] undoScoreSquares = new int[MAX_PLY * Bitboard.SQUARES];
+    private final int[] undoScoreValues = new int[MAX_PLY * Bitboard.SQUARES];
+    private int undoScoreCount;
+
+    private long[] seenOwn = new long[1024];
+    private long[] seenOpponent = new long[1024];
+    private int[] seenStamps = new int[1024];
+    private int seenCount;
+    private int stamp;
+
+    public Position(long aiPieces, long humanPieces, boolean aiTurn, int movesLeft)
+    {
+        this.aiPieces = aiPieces;
+        this.humanPieces = humanPieces;
+        this.aiTurn = aiTurn;
+        this.movesLeft = movesLeft;
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++)
+        {
+            keys[symmetry] = Zobrist.key(Symmetry.transform(aiPieces, symmetry), Symmetry.transform(humanPieces, symmetry), aiTurn, movesLeft);
+        }
+        for (long squares = aiPieces | humanPieces; squares != 0; squares &= squares - 1)
+        {
+            int square = Long.numberOfTrailingZeros(squares);
+            pieceScores[square] = scoreOf(square);
+            evaluation += pieceScores[square];
+        }
+    }
+
+    // The setup GameBoardGUI deals: triangles (AI) down the left edge at the top and the right edge at the bottom,
+    // circles (human) in the other two corners, AI to move with 50 moves to play.
+    public static Position startPosition()
+    {
+        long aiPieces = Bitboard.bit(Bitboard.square(0, 0)) | Bitboard.bit(Bitboard.square(2, 0))
+            | Bitboard.bit(Bitboard.square(4, 6)) | Bitboard.bit(Bitboard.square(6, 6));
+        long humanPieces = Bitboard.bit(Bitboard.square(4, 0)) | Bitboard.bit(Bitboard.square(6, 0))
+            | Bitboard.bit(Bitboard.square(0, 6)) | Bitboard.bit(Bitboard.square(2, 6));
+        return new Position(aiPieces, humanPieces, true, START_MOVES);
+    }
+
+    public static Position fromPieces(Piece[][] boardState, boolean aiTurn, int movesLeft)
+    {
+        return new Position(Bitboard.fromPieces(boardState, true), Bitboard.fromPieces(boardState, false), aiTurn, movesLeft);
+    }
+
+    // Seven rows from the top, '/'-separated, with T for AI triangles, C for human circles and '.' for empty
+    // squares, then the side to move and the moves left: "T.....C/......./T.....C/......./C.....T/......./C.....T ai 50".
+    public static Position parse(String text)
+    {
+        String[] fields = text.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (fields.length != 3 || rows.length != Bitboard.SIZE)
+        {
+            throw new IllegalArgumentException("Bad position: " + text);
+        }
+        long aiPieces = 0;
+        long humanPieces = 0;
+        for (int row = 0; row < Bitboard.SIZE; row++)
+        {
+            if (rows[row].length() != Bitboard.SIZE)
+            {
+                throw new IllegalArgumentException("Bad row " + rows[row] + " in " + text);
+            }
+            for (int col = 0; col < Bitboard.SIZE; col++)
+            {
+                char c = rows[row].charAt(col);
+                if (c == 'T')
+                {
+                    aiPieces |= Bitboard.bit(Bitboard.square(row, col));
+                }
+                else if (c == 'C')
+                {
+                    humanPieces |= Bitboard.bit(Bitboard.square(row, col));
+                }
+            }
+        }
+        return new Position(aiPieces, humanPieces, fields[1].equals("ai"), Integer.parseInt(fields[2]));
+    }
+
+    // A fresh position with the same pieces, turn and counter but none of this one's undo history.
+    public Position copy()
+    {
+        return new Position(aiPieces, humanPieces, aiTurn, movesLeft);
+    }
+
+    public long aiPieces()
+    {
+        return aiPieces;
+    }
+
+    public long humanPieces()
+    {
+        return humanPieces;
+    }
+
+    public long ownPieces()
+    {
+        return aiTurn ? aiPieces : humanPieces;
+    }
+
+    public long opponentPieces()
+    {
+        return aiTurn ? humanPieces : aiPieces;
+    }
+
+    public long key()
+    {
+        return keys[Symmetry.IDENTITY];
+    }
+
+    // The same for every mirror image of this position, for tables that store one entry per symmetry class.
+    public long canonicalKey()
+    {
+        return keys[canonicalSymmetry()];
+    }
+
+    // The symmetry that maps this position onto the one canonicalKey stands for; moves go through it both ways.
+    public int canonicalSymmetry()
+    {
+        int best = Symmetry.IDENTITY;
+        for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++)
+        {
+            if (keys[symmetry] < keys[best])
+            {
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    public int movesLeft()
+    {
+        return movesLeft;
+    }
+
+    public boolean isAiTurn()
+    {
+        return aiTurn;
+    }
+
+    public int ply()
+    {
+        return ply;
+    }
+
+    // Same value as Evaluator.evaluate, kept up to date by makeMove and unmakeMove.
+    public int evaluation()
+    {
+        return evaluation;
+    }
+
+    public boolean isTerminal()
+    {
+        return movesLeft <= 0 || Bitboard.isTerminal(aiPieces, humanPieces);
+    }
+
+    // The GUI's end of game: a side is wiped out or the moves run out. isTerminal also stops the search at 1 v 1.
+    public boolean isGameOver()
+    {
+        return aiPieces == 0 || humanPieces == 0 || movesLeft <= 0;
+    }
+
+    // A side with more than one piece moves two of them per turn, as GameBoardGUI counts it.
+    public int turnCost()
+    {
+        return Bitboard.count(ownPieces()) > 1 ? 2 : 1;
+    }
+
+    // Each turn is added with the number of opponent pieces it captures as its initial score.
+    public void generateMoves(MoveList moves)
+    {
+        moves.clear();
+        long own = ownPieces();
+        long opponent = opponentPieces();
+        boolean twoPieces = Bitboard.count(own) > 1;
+        resetSeen();
+
+        for (long pieces1 = own; pieces1 != 0; pieces1 &= pieces1 - 1)
+        {
+            int from1 = Long.numberOfTrailingZeros(pieces1);
+            for (long targets1 = emptyNeighbours(from1, own | opponent); targets1 != 0; targets1 &= targets1 - 1)
+            {
+                int to1 = Long.numberOfTrailingZeros(targets1);
+                long own1 = own ^ Bitboard.bit(from1) ^ Bitboard.bit(to1);
+                long captured1 = Bitboard.captures(own1, opponent, to1);
+                own1 &= ~captured1;
+                long opponent1 = opponent & ~captured1;
+                if (!twoPieces)
+                {
+                    // A lone piece that captures itself leaves the same board wherever it stepped.
+                    if (markSeen(own1, opponent1))
+                    {
+                        moves.add(Move.encode(from1, to1), Bitboard.count(opponent & captured1));
+                    }
+                    continue;
+                }
+
+                boolean secondMoveFound = false;
+                for (long pieces2 = own1 & ~Bitboard.bit(to1); pieces2 != 0; pieces2 &= pieces2 - 1)
+                {
+                    int from2 = Long.numberOfTrailingZeros(pieces2);
+                    for (long targets2 = emptyNeighbours(from2, own1 | opponent1); targets2 != 0; targets2 &= targets2 - 1)
+                    {
+                        int to2 = Long.numberOfTrailingZeros(targets2);
+                        long own2 = own1 ^ Bitboard.bit(from2) ^ Bitboard.bit(to2);
+                        long captured2 = Bitboard.captures(own2, opponent1, to2);
+                        secondMoveFound = true;
+                        // A-then-B and B-then-A usually meet in the same position; keep only the first of them.
+                        if (markSeen(own2 & ~captured2, opponent1 & ~captured2))
+                        {
+                            moves.add(Move.encode(from1, to1, from2, to2), Bitboard.count(opponent & (captured1 | captured2)));
+                        }
+                    }
+                }
+                if (!secondMoveFound && markSeen(own1, opponent1))
+                {
+                    moves.add(Move.encode(from1, to1), Bitboard.count(opponent & captured1));
+                }
+            }
+        }
+    }
+
+    public void makeMove(int move)
+    {
+        undoMoves[ply] = move;
+        System.arraycopy(keys, 0, undoKeys, ply * Symmetry.COUNT, Symmetry.COUNT);
+        undoMovesLeft[ply] = movesLeft;
+        int cost = turnCost();
+
+        long captured = step(Move.from1(move), Move.to1(move));
+        undoOwnCaptured1[ply] = captured & ownPieces();
+        undoOpponentCaptured1[ply] = captured & opponentPieces();
+        removeCaptured(captured);
+
+        captured = 0;
+        if (Move.hasSecond(move))
+        {
+            captured = step(Move.from2(move), Move.to2(move));
+        }
+        undoOwnCaptured2[ply] = captured & ownPieces();
+        undoOpponentCaptured2[ply] = captured & opponentPieces();
+        removeCaptured(captured);
+        updateScores(move);
+
+        long turnChange = Zobrist.sideToMove(aiTurn) ^ Zobrist.sideToMove(!aiTurn) ^ Zobrist.movesLeft(movesLeft) ^ Zobrist.movesLeft(movesLeft - cost);
+        for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++)
+        {
+            keys[symmetry] ^= turnChange;
+        }
+        movesLeft -= cost;
+        aiTurn = !aiTurn;
+        ply++;
+    }
+
+    public void unmakeMove()
+    {
+        ply--;
+        aiTurn = !aiTurn;
+        int move = undoMoves[ply];
+        long own = ownPieces();
+        long opponent = opponentPieces();
+
+        if (Move.hasSecond(move))
+        {
+            own |= undoOwnCaptured2[ply];
+            opponent |= undoOpponentCaptured2[ply];
+            own ^= Bitboard.bit(Move.from2(move)) ^ Bitboard.bit(Move.to2(move));
+        }
+        own |= undoOwnCaptured1[ply];
+        opponent |= undoOpponentCaptured1[ply];
+        own ^= Bitboard.bit(Move.from1(move)) ^ Bitboard.bit(Move.to1(move));
+
+        setPieces(own, opponent);
+        System.arraycopy(undoKeys, ply * Symmetry.COUNT, keys, 0, Symmetry.COUNT);
+        movesLeft = undoMovesLeft[ply];
+
+        while (undoScoreCount > undoScoreStarts[ply])
+        {
+            undoScoreCount--;
+            pieceScores[undoScoreSquares[undoScoreCount]] = undoScoreValues[undoScoreCount];
+        }
+        evaluation = undoEvaluations[ply];
+    }
+
+    // Rescores only the pieces near the squares this turn emptied or filled, saving old scores for unmakeMove.
+    private void updateScores(int move)
+    {
+        undoEvaluations[ply] = evaluation;
+        undoScoreStarts[ply] = undoScoreCount;
+
+        long changed = Bitboard.bit(Move.from1(move)) | Bitboard.bit(Move.to1(move))
+            | undoOwnCaptured1[ply] | undoOpponentCaptured1[ply] | undoOwnCaptured2[ply] | undoOpponentCaptured2[ply];
+        if (Move.hasSecond(move))
+        {
+            changed |= Bitboard.bit(Move.from2(move)) | Bitboard.bit(Move.to2(move));
+        }
+        long dirty = 0;
+        for (long squares = changed; squares != 0; squares &= squares - 1)
+        {
+            dirty |= Evaluator.influence(Long.numberOfTrailingZeros(squares));
+        }
+
+        for (long squares = dirty & (aiPieces | humanPieces | changed); squares != 0; squares &= squares - 1)
+        {
+            int square = Long.numberOfTrailingZeros(squares);
+            int score = scoreOf(square);
+            if (score != pieceScores[square])
+            {
+                undoScoreSquares[undoScoreCount] = square;
+                undoScoreValues[undoScoreCount] = pieceScores[square];
+                undoScoreCount++;
+                evaluation += score - pieceScores[square];
+                pieceScores[square] = score;
+            }
+        }
+    }
+
+    private int scoreOf(int square)
+    {
+        long bit = Bitboard.bit(square);
+        if ((aiPieces & bit) != 0)
+        {
+            return Evaluator.calculatePieceScore(square, aiPieces, humanPieces);
+        }
+        if ((humanPieces & bit) != 0)
+        {
+            return -Evaluator.calculatePieceScore(square, humanPieces, aiPieces);
+        }
+        return 0;
+    }
+
+    private long step(int from, int to)
+    {
+        long own = ownPieces() ^ Bitboard.bit(from) ^ Bitboard.bit(to);
+        togglePieces(aiTurn, Bitboard.bit(from) | Bitboard.bit(to));
+        setPieces(own, opponentPieces());
+        return Bitboard.captures(own, opponentPieces(), to);
+    }
+
+    private void removeCaptured(long captured)
+    {
+        togglePieces(aiTurn, ownPieces() & captured);
+        togglePieces(!aiTurn, opponentPieces() & captured);
+        setPieces(ownPieces() & ~captured, opponentPieces() & ~captured);
+    }
+
+    private void togglePieces(boolean isAIControlled, long squares)
+    {
+        for (; squares != 0; squares &= squares - 1)
+        {
+            int square = Long.numberOfTrailingZeros(squares);
+            for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++)
+            {
+                keys[symmetry] ^= Zobrist.piece(isAIControlled, Symmetry.square(square, symmetry));
+            }
+        }
+    }
+
+    private void setPieces(long own, long opponent)
+    {
+        if (aiTurn)
+        {
+            aiPieces = own;
+            humanPieces = opponent;
+        }
+        else
+        {
+            humanPieces = own;
+            aiPieces = opponent;
+        }
+    }
+
+    private void resetSeen()
+    {
+        seenCount = 0;
+        if (++stamp == 0)
+        {
+            Arrays.fill(seenStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private boolean markSeen(long own, long opponent)
+    {
+        if (seenCount * 2 >= seenStamps.length)
+        {
+            growSeen();
+        }
+        int mask = seenStamps.length - 1;
+        long hash = own * 0x9E3779B97F4A7C15L ^ opponent * 0xC2B2AE3D27D4EB4FL;
+        int index = (int) (hash >>> 40) & mask;
+        while (seenStamps[index] == stamp)
+        {
+            if (seenOwn[index] == own && seenOpponent[index] == opponent)
+            {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        seenStamps[index] = stamp;
+        seenOwn[index] = own;
+        seenOpponent[index] = opponent;
+        seenCount++;
+        return true;
+    }
+
+    private void growSeen()
+    {
+        long[] oldOwn = seenOwn;
+        long[] oldOpponent = seenOpponent;
+        int[] oldStamps = seenStamps;
+        seenOwn = new long[oldOwn.length * 2];
+        seenOpponent = new long[oldOwn.length * 2];
+        seenStamps = new int[oldOwn.length * 2];
+        seenCount = 0;
+        for (int i = 0; i < oldStamps.length; i++)
+        {
+            if (oldStamps[i] == stamp)
+            {
+                markSeen(oldOwn[i], oldOpponent[i]);
+            }
+        }
+    }
+
+    private static long emptyNeighbours(int square, long occupied)
+    {
+        return Bitboard.neighbours(square) & ~occupied;
+    }
+}
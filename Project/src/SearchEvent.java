@@ -0,0 +1,66 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Recorded by JFR once per AI search, e.g. java -XX:StartFlightRecording=filename=search.jfr GameBoardGUI
+@Name("boardgame.Search")
+@Label("AI Search")
+@Category("Board Game")
+@Description("One complete AI search, summed over all search threads")
+class SearchEvent extends jdk.jfr.Event
+{
+    @Label("Depth")
+    int depth;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Best Score")
+    int bestScore;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes per Second")
+    long nodesPerSecond;
+
+    @Label("Quiescence Nodes")
+    long quiescenceNodes;
+
+    @Label("TT Probes")
+    long ttProbes;
+
+    @Label("TT Hits")
+    long ttHits;
+
+    @Label("TT Stores")
+    long ttStores;
+
+    @Label("Beta Cutoffs")
+    long betaCutoffs;
+
+    @Label("First Move Cutoffs")
+    long firstMoveCutoffs;
+
+    @Label("Re-searches")
+    long researches;
+
+    @Label("Reductions")
+    long reductions;
+
+    @Label("Futility Prunes")
+    long futilityPrunes;
+
+    @Label("Multi-cuts")
+    long multiCuts;
+
+    @Label("Tablebase Hits")
+    long tablebaseHits;
+
+    @Label("Effective Branching Factor")
+    double effectiveBranchingFactor;
+}
@@ -0,0 +1,19 @@
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Recorded by JFR for each completed iteration of the main search thread; the event duration is the iteration's.
+@Name("boardgame.SearchIteration")
+@Label("AI Search Iteration")
+@Category("Board Game")
+class SearchIterationEvent extends jdk.jfr.Event
+{
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Best Score")
+    int bestScore;
+}
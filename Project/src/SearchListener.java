@@ -0,0 +1,5 @@
+public interface SearchListener
+{
+    // Called from the search thread each time an iteration of the main search completes.
+    void iterationCompleted(int depth, int bestMove, int bestScore, long nodes, long elapsedNanos);
+}
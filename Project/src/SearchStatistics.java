@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+// Counters for one search. Each SearchWorker fills its own, and AIPlayer sums them over all threads when
+// the search ends; the per-depth figures come from the main worker only.
+public class SearchStatistics
+{
+    long ttProbes;
+    long ttHits;
+    long ttStores;
+    long betaCutoffs;
+    long firstMoveCutoffs;
+    long tablebaseHits;
+    long researches;
+    long quiescenceNodes;
+    long reductions;
+    long futilityPrunes;
+    long multiCuts;
+
+    private long nodes;
+    private long elapsedNanos;
+    private int completedDepth;
+    private long[] nodesByDepth = new long[Position.MAX_PLY + 1];
+    private long[] nanosByDepth = new long[Position.MAX_PLY + 1];
+
+    public void reset()
+    {
+        ttProbes = 0;
+        ttHits = 0;
+        ttStores = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        tablebaseHits = 0;
+        researches = 0;
+        quiescenceNodes = 0;
+        reductions = 0;
+        futilityPrunes = 0;
+        multiCuts = 0;
+        nodes = 0;
+        elapsedNanos = 0;
+        completedDepth = 0;
+        Arrays.fill(nodesByDepth, 0);
+        Arrays.fill(nanosByDepth, 0);
+    }
+
+    void iterationCompleted(int depth, long iterationNodes, long iterationNanos)
+    {
+        nodesByDepth[depth] = iterationNodes;
+        nanosByDepth[depth] = iterationNanos;
+        completedDepth = depth;
+    }
+
+    void finish(long nodes, long elapsedNanos)
+    {
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Takes over the main worker's figures, including its per-depth ones.
+    void copyFrom(SearchStatistics other)
+    {
+        reset();
+        add(other);
+        elapsedNanos = other.elapsedNanos;
+        completedDepth = other.completedDepth;
+        System.arraycopy(other.nodesByDepth, 0, nodesByDepth, 0, nodesByDepth.length);
+        System.arraycopy(other.nanosByDepth, 0, nanosByDepth, 0, nanosByDepth.length);
+    }
+
+    // Sums a helper's counters into these.
+    void add(SearchStatistics other)
+    {
+        ttProbes += other.ttProbes;
+        ttHits += other.ttHits;
+        ttStores += other.ttStores;
+        betaCutoffs += other.betaCutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tablebaseHits += other.tablebaseHits;
+        researches += other.researches;
+        quiescenceNodes += other.quiescenceNodes;
+        reductions += other.reductions;
+        futilityPrunes += other.futilityPrunes;
+        multiCuts += other.multiCuts;
+        nodes += other.nodes;
+    }
+
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    public long elapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public long nodesPerSecond()
+    {
+        return nodes * 1_000_000_000L / Math.max(1, elapsedNanos);
+    }
+
+    public long ttProbes()
+    {
+        return ttProbes;
+    }
+
+    public long ttHits()
+    {
+        return ttHits;
+    }
+
+    public long ttStores()
+    {
+        return ttStores;
+    }
+
+    public double ttHitRate()
+    {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    public long betaCutoffs()
+    {
+        return betaCutoffs;
+    }
+
+    public long firstMoveCutoffs()
+    {
+        return firstMoveCutoffs;
+    }
+
+    // Share of beta cutoffs produced by the first move searched; near 1 means the move ordering works.
+    public double firstMoveCutoffRate()
+    {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    public long tablebaseHits()
+    {
+        return tablebaseHits;
+    }
+
+    // Null-window and aspiration searches that failed and had to be repeated with a wider window.
+    public long researches()
+    {
+        return researches;
+    }
+
+    // Nodes the capture search added below the horizon; they are part of nodes().
+    public long quiescenceNodes()
+    {
+        return quiescenceNodes;
+    }
+
+    // Late moves searched at reduced depth first; those that failed high also count as re-searches.
+    public long reductions()
+    {
+        return reductions;
+    }
+
+    // Nodes cut by reverse futility plus quiet moves skipped by futility pruning.
+    public long futilityPrunes()
+    {
+        return futilityPrunes;
+    }
+
+    public long multiCuts()
+    {
+        return multiCuts;
+    }
+
+    public int completedDepth()
+    {
+        return completedDepth;
+    }
+
+    // Nodes searched by the iteration to this depth alone, or 0 if it was not completed.
+    public long nodesAtDepth(int depth)
+    {
+        return depth > 0 && depth < nodesByDepth.length ? nodesByDepth[depth] : 0;
+    }
+
+    public long nanosAtDepth(int depth)
+    {
+        return depth > 0 && depth < nanosByDepth.length ? nanosByDepth[depth] : 0;
+    }
+
+    // How many times more nodes the last completed iteration took than the one before it.
+    public double effectiveBranchingFactor()
+    {
+        for (int depth = completedDepth - 1; depth > 0; depth--)
+        {
+            if (nodesByDepth[depth] > 0)
+            {
+                return (double) nodesByDepth[completedDepth] / nodesByDepth[depth];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder(String.format(
+            "depth %d, %,d nodes (%,d quiescence) in %.1f ms (%,d nodes/s), TT %d%% of %,d probes hit, %,d stores, "
+                + "%,d cutoffs (%d%% on first move), %,d re-searches, %,d reductions, %,d futility prunes, %,d multi-cuts, "
+                + "%,d tablebase hits, EBF %.2f",
+            completedDepth, nodes, quiescenceNodes, elapsedNanos / 1e6, nodesPerSecond(), Math.round(100 * ttHitRate()), ttProbes, ttStores,
+            betaCutoffs, Math.round(100 * firstMoveCutoffRate()), researches, reductions, futilityPrunes,
+            multiCuts, tablebaseHits, effectiveBranchingFactor()));
+        for (int depth = 1; depth <= completedDepth; depth++)
+        {
+            if (nodesByDepth[depth] > 0)
+            {
+                text.append(String.format("%n  depth %d: %,d nodes, %.1f ms", depth, nodesByDepth[depth], nanosByDepth[depth] / 1e6));
+            }
+        }
+        return text.toString();
+    }
+}
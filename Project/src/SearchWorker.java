@@ -0,0 +1,682 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SearchWorker 
+{
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    private static final int HISTORY_LIMIT = 1 << 26;
+    private static final int ASPIRATION_WINDOW = 50;
+    public static final int DEFAULT_QUIESCENCE_BUDGET = 256;
+
+    // Selective search features, switched on and off together through setPruning.
+    public static final int LATE_MOVE_REDUCTIONS = 1;
+    public static final int FUTILITY = 2;
+    public static final int REVERSE_FUTILITY = 4;
+    public static final int MULTI_CUT = 8;
+    public static final int DEFAULT_PRUNING = LATE_MOVE_REDUCTIONS | FUTILITY | REVERSE_FUTILITY | MULTI_CUT;
+
+    private static final int LMR_DEPTH = 3;
+    private static final int LMR_MOVES = 4;
+    private static final int FUTILITY_DEPTH = 2;
+    private static final int FUTILITY_MARGIN = 150;
+    private static final int MULTI_CUT_DEPTH = 4;
+    private static final int MULTI_CUT_REDUCTION = 2;
+    private static final int MULTI_CUT_MOVES = 6;
+    private static final int MULTI_CUT_REQUIRED = 3;
+
+    private final int id;
+    private final TranspositionTable transpositionTable;
+    private final AtomicBoolean stopSignal;
+    private TranspositionEntry entry = new TranspositionEntry();
+    private MoveList[] moveLists = new MoveList[Position.MAX_PLY + 1];
+    private MoveList rootMoves = new MoveList();
+    private int[][] killers = new int[Position.MAX_PLY + 1][2];
+    private int[][] history = new int[2][Bitboard.SQUARES * Bitboard.SQUARES];
+    private volatile SearchListener listener;
+    private Tablebase tablebase;
+    private SearchStatistics statistics = new SearchStatistics();
+    private volatile long deadline;
+    private long nodeBudget;
+    private long nodes;
+    private boolean canStop;
+    private boolean stopped;
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private int iterationMove;
+    private int quiescenceBudget = DEFAULT_QUIESCENCE_BUDGET;
+    private int quiescenceNodesLeft;
+    private int pruning = DEFAULT_PRUNING;
+
+    // Worker 0 runs on the caller's thread and owns the budget; the others are Lazy SMP helpers.
+    public SearchWorker(int id, TranspositionTable transpositionTable, AtomicBoolean stopSignal)
+    {
+        this.id = id;
+        this.transpositionTable = transpositionTable;
+        this.stopSignal = stopSignal;
+        for (int ply = 0; ply < moveLists.length; ply++) 
+        {
+            moveLists[ply] = new MoveList();
+        }
+    }
+
+    public void setLimits(long deadline, long nodeBudget)
+    {
+        this.deadline = deadline;
+        this.nodeBudget = nodeBudget;
+    }
+
+    // Lets a pondering search that turned out to be the real one finish on the normal clock. The deadline
+    // only ever moves earlier, so a search already bounded is never given more time.
+    public void shortenDeadline(long deadline)
+    {
+        if (this.deadline == 0 || deadline - this.deadline < 0)
+        {
+            this.deadline = deadline;
+        }
+    }
+
+    // May be changed while a search runs; the next completed iteration goes to the new listener.
+    public void setListener(SearchListener listener)
+    {
+        this.listener = listener;
+    }
+
+    public void setTablebase(Tablebase tablebase)
+    {
+        this.tablebase = tablebase;
+    }
+
+    // Nodes the capture search may spend below each horizon node; zero evaluates the horizon statically.
+    public void setQuiescenceBudget(int nodes)
+    {
+        this.quiescenceBudget = Math.max(0, nodes);
+    }
+
+    // Any combination of LATE_MOVE_REDUCTIONS, FUTILITY, REVERSE_FUTILITY and MULTI_CUT; zero searches full width.
+    public void setPruning(int features)
+    {
+        this.pruning = features;
+    }
+
+    public void clearHistory()
+    {
+        for (int[] sideHistory : history) 
+        {
+            Arrays.fill(sideHistory, 0);
+        }
+    }
+
+    public int bestMove()
+    {
+        return bestMove;
+    }
+
+    public int bestScore()
+    {
+        return bestScore;
+    }
+
+    public int completedDepth()
+    {
+        return completedDepth;
+    }
+
+    public long nodes()
+    {
+        return nodes;
+    }
+
+    public SearchStatistics statistics()
+    {
+        return statistics;
+    }
+
+    public void search(Position position, MoveList moves, int maxDepth)
+    {
+        rootMoves.copyFrom(moves);
+        nodes = 0;
+        statistics.reset();
+        stopped = false;
+        boolean isMaximizing = position.isAiTurn();
+        bestScore = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        bestMove = rootMoves.get(0);
+        completedDepth = 0;
+        prepareOrdering();
+        long rootKey = position.canonicalKey();
+        int rootSymmetry = position.canonicalSymmetry();
+        int hashMove = probe(rootKey) ? Symmetry.move(entry.move, rootSymmetry) : Move.NONE;
+        orderMoves(rootMoves, position, hashMove);
+        rootMoves.sort();
+        // Helpers start on other root moves and half of them one ply deeper, so they fill the table ahead of worker 0.
+        rootMoves.rotate(id);
+        long startTime = System.nanoTime();
+
+        for (int iterationDepth = 1 + (id & 1); iterationDepth <= maxDepth; iterationDepth++) 
+        {
+            // The first iteration of worker 0 always finishes so there is a move to play whatever the budget.
+            canStop = id != 0 || iterationDepth > 1;
+            SearchIterationEvent event = id == 0 ? new SearchIterationEvent() : null;
+            if (event != null) 
+            {
+                event.begin();
+            }
+            long iterationStartNodes = nodes;
+            long iterationStartTime = System.nanoTime();
+
+            // Aspiration: try a narrow window around the last score and widen only the side the score fell out of.
+            long window = ASPIRATION_WINDOW;
+            int alpha = Integer.MIN_VALUE;
+            int beta = Integer.MAX_VALUE;
+            if (completedDepth > 0 && iterationDepth > 2) 
+            {
+                alpha = clamp(bestScore - window);
+                beta = clamp(bestScore + window);
+            }
+            int iterationScore;
+            while (true) 
+            {
+                iterationScore = searchRoot(position, iterationDepth, alpha, beta, isMaximizing);
+                if (stopped) 
+                {
+                    break;
+                }
+                if (iterationScore <= alpha && alpha != Integer.MIN_VALUE) 
+                {
+                    window *= 4;
+                    alpha = clamp(bestScore - window);
+                }
+                else if (iterationScore >= beta && beta != Integer.MAX_VALUE) 
+                {
+                    window *= 4;
+                    beta = clamp(bestScore + window);
+                }
+                else 
+                {
+                    break;
+                }
+                statistics.researches++;
+            }
+            if (stopped) 
+            {
+                break;
+            }
+            bestScore = iterationScore;
+            bestMove = iterationMove;
+            completedDepth = iterationDepth;
+            rootMoves.moveToFront(bestMove);
+            store(rootKey, bestScore, completedDepth, TranspositionEntry.EXACT, Symmetry.move(bestMove, rootSymmetry));
+            statistics.iterationCompleted(completedDepth, nodes - iterationStartNodes, System.nanoTime() - iterationStartTime);
+            if (event != null && event.shouldCommit()) 
+            {
+                event.depth = completedDepth;
+                event.nodes = nodes - iterationStartNodes;
+                event.bestScore = bestScore;
+                event.commit();
+            }
+            if (listener != null) 
+            {
+                listener.iterationCompleted(completedDepth, bestMove, bestScore, nodes, System.nanoTime() - startTime);
+            }
+
+            // An iteration costs several times the previous one, so do not start one that cannot finish.
+            if (deadline != 0 && System.nanoTime() - startTime > (deadline - startTime) / 2) 
+            {
+                break;
+            }
+        }
+        statistics.finish(nodes, System.nanoTime() - startTime);
+    }
+
+    private int searchRoot(Position position, int depth, int alpha, int beta, boolean isMaximizing) 
+    {
+        int score = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        iterationMove = Move.NONE;
+        for (int i = 0; i < rootMoves.size(); i++) 
+        {
+            int move = rootMoves.get(i);
+            position.makeMove(move);
+            int moveScore = searchChild(position, depth - 1, alpha, beta, isMaximizing, i == 0, 0);
+            position.unmakeMove();
+            if (stopped) 
+            {
+                return 0;
+            }
+            if (isMaximizing ? moveScore > score : moveScore < score) 
+            {
+                score = moveScore;
+                iterationMove = move;
+            }
+            if (isMaximizing) 
+                alpha = Math.max(alpha, score);
+            else 
+                beta = Math.min(beta, score);
+            if (alpha >= beta) 
+            {
+                break;
+            }
+        }
+        return score;
+    }
+
+    // Principal variation search: past the first move, a null window only proves a move is no better than
+    // the best so far, and the move is searched again with the real window when that proof fails. A reduced
+    // move gets its null window at the lower depth first and is searched at full depth only if it fails high.
+    private int searchChild(Position position, int depth, int alpha, int beta, boolean isMaximizing, boolean first, int reduction) 
+    {
+        if (reduction > 0) 
+        {
+            statistics.reductions++;
+            int value = isMaximizing
+                ? minimax(position, depth - reduction, alpha, alpha + 1, false)
+                : minimax(position, depth - reduction, beta - 1, beta, true);
+            if (stopped || (isMaximizing ? value <= alpha : value >= beta)) 
+            {
+                return value;
+            }
+            statistics.researches++;
+        }
+        if (first || (long) beta - alpha <= 1) 
+        {
+            return minimax(position, depth, alpha, beta, !isMaximizing);
+        }
+        if (isMaximizing) 
+        {
+            int value = minimax(position, depth, alpha, alpha + 1, false);
+            if (value > alpha && value < beta && !stopped) 
+            {
+                statistics.researches++;
+                value = minimax(position, depth, alpha, beta, false);
+            }
+            return value;
+        }
+        int value = minimax(position, depth, beta - 1, beta, true);
+        if (value < beta && value > alpha && !stopped) 
+        {
+            statistics.researches++;
+            value = minimax(position, depth, alpha, beta, true);
+        }
+        return value;
+    }
+
+    private int minimax(Position position, int depth, int alpha, int beta, boolean isMaximizing) 
+    {
+        if (outOfBudget()) 
+        {
+            return 0;
+        }
+
+        int result = probeTablebase(position);
+        if (result != Tablebase.UNKNOWN) 
+        {
+            return Tablebase.score(result);
+        }
+
+        // Mirror images share one entry, stored with its move as seen in the canonical orientation.
+        long key = position.canonicalKey();
+        int symmetry = position.canonicalSymmetry();
+        int hashMove = Move.NONE;
+        if (probe(key)) 
+        {
+            hashMove = Symmetry.move(entry.move, symmetry);
+            if (entry.depth >= depth) 
+            {
+                if (entry.bound == TranspositionEntry.EXACT) return entry.value; 
+                if (entry.bound == TranspositionEntry.LOWER_BOUND && entry.value > alpha) alpha = entry.value; 
+                if (entry.bound == TranspositionEntry.UPPER_BOUND && entry.value < beta) beta = entry.value; 
+                if (alpha >= beta) return entry.value;
+            }
+        }
+    
+        if (position.isTerminal()) 
+        {
+            int eval = position.evaluation();
+            store(key, eval, depth, TranspositionEntry.EXACT, Move.NONE);
+            return eval;
+        }
+        if (depth == 0) 
+        {
+            quiescenceNodesLeft = quiescenceBudget;
+            int eval = quiescence(position, alpha, beta, isMaximizing);
+            if (stopped) 
+            {
+                return 0;
+            }
+            store(key, eval, 0, boundOf(eval, alpha, beta), Move.NONE);
+            return eval;
+        }
+    
+        // Near the leaves, a static score this far past the null window is taken as the result without a search.
+        int staticEval = position.evaluation();
+        boolean nullWindow = (long) beta - alpha <= 1;
+        if ((pruning & REVERSE_FUTILITY) != 0 && nullWindow && depth <= FUTILITY_DEPTH) 
+        {
+            int margin = FUTILITY_MARGIN * depth;
+            if (isMaximizing ? staticEval - margin >= beta : staticEval + margin <= alpha) 
+            {
+                statistics.futilityPrunes++;
+                return isMaximizing ? staticEval - margin : staticEval + margin;
+            }
+        }
+
+        MoveList successors = getSuccesors(position);
+        if (successors.isEmpty()) 
+        {
+            return staticEval;
+        }
+        orderMoves(successors, position, hashMove);
+
+        // Multi-cut: where a cutoff is expected, enough of the first moves failing high at reduced depth ends the node.
+        if ((pruning & MULTI_CUT) != 0 && nullWindow && depth >= MULTI_CUT_DEPTH && (isMaximizing ? staticEval >= beta : staticEval <= alpha)) 
+        {
+            int cuts = 0;
+            for (int i = 0; i < successors.size() && i < MULTI_CUT_MOVES; i++) 
+            {
+                position.makeMove(successors.pickNext(i));
+                int tempValue = minimax(position, depth - 1 - MULTI_CUT_REDUCTION, alpha, beta, !isMaximizing);
+                position.unmakeMove();
+                if (stopped) 
+                {
+                    return 0;
+                }
+                if ((isMaximizing ? tempValue >= beta : tempValue <= alpha) && ++cuts == MULTI_CUT_REQUIRED) 
+                {
+                    statistics.multiCuts++;
+                    return isMaximizing ? beta : alpha;
+                }
+            }
+        }
+
+        // A quiet turn near the leaves cannot move the score by more than the margin, so it cannot reach the window.
+        boolean futile = (pruning & FUTILITY) != 0 && nullWindow && depth <= FUTILITY_DEPTH
+            && (isMaximizing ? staticEval + FUTILITY_MARGIN * depth <= alpha : staticEval - FUTILITY_MARGIN * depth >= beta);
+        int[] plyKillers = killers[position.ply()];
+
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+        int value = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < successors.size(); i++) 
+        {
+            int move = successors.pickNext(i);
+            long opponentPieces = position.opponentPieces();
+            position.makeMove(move);
+            boolean quiet = position.ownPieces() == opponentPieces;
+            if (futile && quiet && i > 0) 
+            {
+                position.unmakeMove();
+                statistics.futilityPrunes++;
+                continue;
+            }
+            // Late quiet turns are searched shallower first; the move ordering rarely puts the best one there.
+            int reduction = 0;
+            if ((pruning & LATE_MOVE_REDUCTIONS) != 0 && quiet && depth >= LMR_DEPTH && i >= LMR_MOVES 
+                && move != plyKillers[0] && move != plyKillers[1]) 
+            {
+                reduction = depth >= 6 && i >= 4 * LMR_MOVES ? 2 : 1;
+            }
+            int tempValue = searchChild(position, depth - 1, alpha, beta, isMaximizing, i == 0, reduction);
+            position.unmakeMove();
+            if (stopped) 
+            {
+                return 0;
+            }
+
+            if (isMaximizing) 
+            {
+                if (tempValue > value) 
+                {
+                    value = tempValue;
+                    bestMove = move;
+                }
+                alpha = Math.max(alpha, value);
+            } 
+            else 
+            {
+                if (tempValue < value) 
+                {
+                    value = tempValue;
+                    bestMove = move;
+                }
+                beta = Math.min(beta, value);
+            }
+            if (alpha >= beta) 
+            {
+                statistics.betaCutoffs++;
+                if (i == 0) 
+                {
+                    statistics.firstMoveCutoffs++;
+                }
+                if (quiet) 
+                {
+                    rememberCutoff(position, move, depth);
+                }
+                break;
+            }
+        }
+        store(key, value, depth, boundOf(value, originalAlpha, originalBeta), Symmetry.move(bestMove, symmetry));
+    
+        return value;
+    }
+
+    // Past the horizon only turns that capture are played out, and the side to move may instead stand pat on
+    // the static score, so a leaf is not scored in the middle of an exchange. The caller has counted this node.
+    private int quiescence(Position position, int alpha, int beta, boolean isMaximizing) 
+    {
+        int standPat = position.evaluation();
+        if (position.isTerminal() || quiescenceNodesLeft <= 0 || position.ply() >= Position.MAX_PLY) 
+        {
+            return standPat;
+        }
+        if (isMaximizing) 
+        {
+            if (standPat >= beta) 
+                return standPat;
+            alpha = Math.max(alpha, standPat);
+        } 
+        else 
+        {
+            if (standPat <= alpha) 
+                return standPat;
+            beta = Math.min(beta, standPat);
+        }
+
+        int value = standPat;
+        MoveList successors = getSuccesors(position);
+        for (int i = 0; i < successors.size() && quiescenceNodesLeft > 0; i++) 
+        {
+            // Moves come out most captures first, so the first one that takes nothing ends the captures.
+            int move = successors.pickNext(i);
+            if (successors.score(i) == 0) 
+            {
+                break;
+            }
+            if (outOfBudget()) 
+            {
+                return 0;
+            }
+            quiescenceNodesLeft--;
+            statistics.quiescenceNodes++;
+            position.makeMove(move);
+            int result = probeTablebase(position);
+            int tempValue = result != Tablebase.UNKNOWN ? Tablebase.score(result) : quiescence(position, alpha, beta, !isMaximizing);
+            position.unmakeMove();
+            if (stopped) 
+            {
+                return 0;
+            }
+
+            if (isMaximizing) 
+            {
+                value = Math.max(value, tempValue);
+                alpha = Math.max(alpha, value);
+            } 
+            else 
+            {
+                value = Math.min(value, tempValue);
+                beta = Math.min(beta, value);
+            }
+            if (alpha >= beta) 
+            {
+                break;
+            }
+        }
+        return value;
+    }
+
+    private int probeTablebase(Position position) 
+    {
+        if (tablebase == null) 
+        {
+            return Tablebase.UNKNOWN;
+        }
+        int result = tablebase.probe(position.aiPieces(), position.humanPieces(), position.isAiTurn(), position.movesLeft());
+        if (result != Tablebase.UNKNOWN) 
+        {
+            statistics.tablebaseHits++;
+        }
+        return result;
+    }
+
+    private boolean probe(long key) 
+    {
+        statistics.ttProbes++;
+        if (transpositionTable.probe(key, entry)) 
+        {
+            statistics.ttHits++;
+            return true;
+        }
+        return false;
+    }
+
+    private void store(long key, int value, int depth, int bound, int move) 
+    {
+        statistics.ttStores++;
+        transpositionTable.store(key, value, depth, bound, move);
+    }
+
+    private void prepareOrdering() 
+    {
+        for (int[] plyKillers : killers) 
+        {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] sideHistory : history) 
+        {
+            for (int i = 0; i < sideHistory.length; i++) 
+            {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+
+    // Hash move first, then captures by pieces won, then this ply's killers, then the history table.
+    private void orderMoves(MoveList moves, Position position, int hashMove) 
+    {
+        int[] plyKillers = killers[position.ply()];
+        int[] sideHistory = history[position.isAiTurn() ? 0 : 1];
+        int swappedHashMove = Move.swapSteps(hashMove);
+        for (int i = 0; i < moves.size(); i++) 
+        {
+            int move = moves.get(i);
+            int captured = moves.score(i);
+            int score;
+            if (move == hashMove || move == swappedHashMove) 
+                score = HASH_MOVE_SCORE;
+            else if (captured > 0) 
+                score = CAPTURE_SCORE + captured;
+            else if (move == plyKillers[0]) 
+                score = KILLER_SCORE + 1;
+            else if (move == plyKillers[1]) 
+                score = KILLER_SCORE;
+            else 
+                score = historyScore(sideHistory, move);
+            moves.setScore(i, score);
+        }
+    }
+
+    private int historyScore(int[] sideHistory, int move) 
+    {
+        int score = sideHistory[Move.from1(move) * Bitboard.SQUARES + Move.to1(move)];
+        if (Move.hasSecond(move)) 
+        {
+            score += sideHistory[Move.from2(move) * Bitboard.SQUARES + Move.to2(move)];
+        }
+        return score;
+    }
+
+    private void rememberCutoff(Position position, int move, int depth) 
+    {
+        int[] plyKillers = killers[position.ply()];
+        if (plyKillers[0] != move) 
+        {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+
+        int[] sideHistory = history[position.isAiTurn() ? 0 : 1];
+        int bonus = depth * depth;
+        sideHistory[Move.from1(move) * Bitboard.SQUARES + Move.to1(move)] += bonus;
+        if (Move.hasSecond(move)) 
+        {
+            sideHistory[Move.from2(move) * Bitboard.SQUARES + Move.to2(move)] += bonus;
+        }
+        if (historyScore(sideHistory, move) > HISTORY_LIMIT) 
+        {
+            for (int i = 0; i < sideHistory.length; i++) 
+            {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+
+    private boolean outOfBudget() 
+    {
+        nodes++;
+        if (stopped) 
+        {
+            return true;
+        }
+        if (canStop) 
+        {
+            if (nodeBudget > 0 && nodes >= nodeBudget) 
+            {
+                stopSignal.set(true);
+            }
+            else if (deadline != 0 && nodes % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) 
+            {
+                stopSignal.set(true);
+            }
+        }
+        // Also seen during the first iteration, where only a cancellation can have raised it.
+        if (nodes % CHECK_INTERVAL == 0 || nodeBudget > 0) 
+        {
+            stopped = stopSignal.get();
+        }
+        return stopped;
+    }
+
+    private static int clamp(long value) 
+    {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private int boundOf(int value, int alpha, int beta) 
+    {
+        if (value <= alpha) 
+            return TranspositionEntry.UPPER_BOUND;
+        if (value >= beta) 
+            return TranspositionEntry.LOWER_BOUND;
+        return TranspositionEntry.EXACT;
+    }
+
+    private MoveList getSuccesors(Position position) 
+    {
+        MoveList moves = moveLists[position.ply()];
+        position.generateMoves(moves);
+        return moves;
+    }
+}
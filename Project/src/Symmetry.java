@@ -0,0 +1,83 @@
+// The board symmetries the rules respect. Bitboard.captures tries the vertical directions before the horizontal
+// ones and stops at the first self-capture, so a transpose or quarter turn, which swaps the two axes, can
+// change what a move captures. Mirroring top to bottom, left to right, or both keeps each axis as it is and
+// never does. Every symmetry here is its own inverse, so the same call maps into and out of a frame.
+public class Symmetry
+{
+    public static final int IDENTITY = 0;
+    public static final int FLIP_VERTICAL = 1;
+    public static final int FLIP_HORIZONTAL = 2;
+    public static final int ROTATE_180 = 3;
+    public static final int COUNT = 4;
+
+    private static final int ROW_MASK = (1 << Bitboard.SIZE) - 1;
+    private static final int[] REVERSED_ROWS = new int[1 << Bitboard.SIZE];
+    private static final int[][] SQUARES = new int[COUNT][Bitboard.SQUARES];
+
+    static
+    {
+        for (int row = 0; row < REVERSED_ROWS.length; row++)
+        {
+            for (int col = 0; col < Bitboard.SIZE; col++)
+            {
+                if ((row & (1 << col)) != 0)
+                {
+                    REVERSED_ROWS[row] |= 1 << (Bitboard.SIZE - 1 - col);
+                }
+            }
+        }
+        int last = Bitboard.SIZE - 1;
+        for (int square = 0; square < Bitboard.SQUARES; square++)
+        {
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
+            SQUARES[IDENTITY][square] = square;
+            SQUARES[FLIP_VERTICAL][square] = Bitboard.square(last - row, col);
+            SQUARES[FLIP_HORIZONTAL][square] = Bitboard.square(row, last - col);
+            SQUARES[ROTATE_180][square] = Bitboard.square(last - row, last - col);
+        }
+    }
+
+    private Symmetry()
+    {
+    }
+
+    public static int square(int square, int symmetry)
+    {
+        return SQUARES[symmetry][square];
+    }
+
+    public static long transform(long mask, int symmetry)
+    {
+        if (symmetry == IDENTITY)
+        {
+            return mask;
+        }
+        long result = 0;
+        for (int row = 0; row < Bitboard.SIZE; row++)
+        {
+            long bits = (mask >>> (row * Bitboard.SIZE)) & ROW_MASK;
+            if (symmetry != FLIP_VERTICAL)
+            {
+                bits = REVERSED_ROWS[(int) bits];
+            }
+            int target = symmetry == FLIP_HORIZONTAL ? row : Bitboard.SIZE - 1 - row;
+            result |= bits << (target * Bitboard.SIZE);
+        }
+        return result;
+    }
+
+    public static int move(int move, int symmetry)
+    {
+        if (move == Move.NONE || symmetry == IDENTITY)
+        {
+            return move;
+        }
+        if (!Move.hasSecond(move))
+        {
+            return Move.encode(square(Move.from1(move), symmetry), square(Move.to1(move), symmetry));
+        }
+        return Move.encode(square(Move.from1(move), symmetry), square(Move.to1(move), symmetry),
+            square(Move.from2(move), symmetry), square(Move.to2(move), symmetry));
+    }
+}
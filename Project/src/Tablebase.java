@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Exact game results for every position with up to maxPieces pieces a side and up to maxMoves moves left,
+// as written by TablebaseGenerator. Results are absolute (draw, AI wins, human wins) and take two bits each.
+//
+// The file is a 32-byte header followed by one layer per moves-left value. A layer holds the AI-to-move
+// half then the human-to-move half; each half is split into classes by (AI pieces, human pieces), and a
+// position's place in its class comes from the combinatorial ranks of its two piece sets, so no key is stored.
+public class Tablebase
+{
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+    public static final int AI_WIN = 1;
+    public static final int HUMAN_WIN = 2;
+
+    // Far above any static evaluation, so a proven result always outweighs a heuristic one.
+    public static final int WIN_SCORE = 100_000;
+
+    static final int HEADER_BYTES = 32;
+    private static final int MAGIC = 0x54424153;
+    private static final int VERSION = 1;
+    private static final long[][] BINOMIAL = new long[Bitboard.SQUARES + 1][Bitboard.SQUARES + 1];
+
+    static
+    {
+        for (int n = 0; n <= Bitboard.SQUARES; n++)
+        {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+            {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k < n ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final int maxPieces;
+    private final int maxMoves;
+    private final long[][] classOffsets;
+    private final long statesPerSide;
+    private MappedByteBuffer[] layers = new MappedByteBuffer[0];
+
+    Tablebase(int maxPieces, int maxMoves)
+    {
+        this.maxPieces = maxPieces;
+        this.maxMoves = maxMoves;
+        classOffsets = new long[maxPieces + 1][maxPieces + 1];
+        long offset = 0;
+        for (int aiCount = 1; aiCount <= maxPieces; aiCount++)
+        {
+            for (int humanCount = 1; humanCount <= maxPieces; humanCount++)
+            {
+                classOffsets[aiCount][humanCount] = offset;
+                offset += BINOMIAL[Bitboard.SQUARES][aiCount] * BINOMIAL[Bitboard.SQUARES - aiCount][humanCount];
+            }
+        }
+        statesPerSide = offset;
+    }
+
+    // Maps every completed layer of the file; a file still being generated can be probed up to where it got.
+    public static Tablebase open(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer header = readHeader(channel, path);
+            Tablebase tablebase = new Tablebase(header.getInt(8), header.getInt(12));
+            int completed = header.getInt(16);
+            if (channel.size() < tablebase.layerOffset(completed + 1))
+            {
+                throw new IOException(path + " is truncated");
+            }
+            tablebase.layers = new MappedByteBuffer[completed];
+            for (int moves = 1; moves <= completed; moves++)
+            {
+                tablebase.layers[moves - 1] = channel.map(FileChannel.MapMode.READ_ONLY, tablebase.layerOffset(moves), tablebase.layerBytes());
+            }
+            return tablebase;
+        }
+    }
+
+    static ByteBuffer readHeader(FileChannel channel, Path path) throws IOException
+    {
+        ByteBuffer header = FileHeaders.read(channel, HEADER_BYTES);
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+        {
+            throw new IOException(path + " is not a tablebase of version " + VERSION);
+        }
+        return header;
+    }
+
+    static ByteBuffer header(int maxPieces, int maxMoves, int completedLayers)
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(maxPieces).putInt(maxMoves).putInt(completedLayers).flip();
+        return header;
+    }
+
+    public int maxPieces()
+    {
+        return maxPieces;
+    }
+
+    public int maxMoves()
+    {
+        return maxMoves;
+    }
+
+    public int completedLayers()
+    {
+        return layers.length;
+    }
+
+    // The result under best play from here, or UNKNOWN when the position is outside the table.
+    public int probe(long aiPieces, long humanPieces, boolean aiTurn, int movesLeft)
+    {
+        int aiCount = Bitboard.count(aiPieces);
+        int humanCount = Bitboard.count(humanPieces);
+        if (aiCount == 0 || humanCount == 0 || movesLeft <= 0)
+        {
+            return outcome(aiCount, humanCount);
+        }
+        if (aiCount > maxPieces || humanCount > maxPieces || movesLeft > layers.length)
+        {
+            return UNKNOWN;
+        }
+        long state = state(aiPieces, humanPieces, aiTurn);
+        return (layers[movesLeft - 1].get((int) (state >>> 2)) >>> ((state & 3) * 2)) & 3;
+    }
+
+    public static int score(int result)
+    {
+        return result == AI_WIN ? WIN_SCORE : result == HUMAN_WIN ? -WIN_SCORE : 0;
+    }
+
+    // The game's own end rule: whoever has more pieces when it stops wins.
+    static int outcome(int aiCount, int humanCount)
+    {
+        return aiCount > humanCount ? AI_WIN : aiCount < humanCount ? HUMAN_WIN : DRAW;
+    }
+
+    long statesPerSide()
+    {
+        return statesPerSide;
+    }
+
+    long layerBytes()
+    {
+        return (2 * statesPerSide + 3) / 4;
+    }
+
+    long layerOffset(int movesLeft)
+    {
+        return HEADER_BYTES + (movesLeft - 1) * layerBytes();
+    }
+
+    long classOffset(int aiCount, int humanCount)
+    {
+        return classOffsets[aiCount][humanCount];
+    }
+
+    static long humanCombinations(int aiCount, int humanCount)
+    {
+        return BINOMIAL[Bitboard.SQUARES - aiCount][humanCount];
+    }
+
+    // Position of this (pieces, side) in a layer: the AI set's colex rank, then the human set's rank among
+    // the squares the AI does not occupy.
+    long state(long aiPieces, long humanPieces, boolean aiTurn)
+    {
+        int aiCount = Bitboard.count(aiPieces);
+        int humanCount = Bitboard.count(humanPieces);
+        return (aiTurn ? 0 : statesPerSide) + classOffsets[aiCount][humanCount]
+            + rank(aiPieces) * humanCombinations(aiCount, humanCount) + rank(compress(humanPieces, aiPieces));
+    }
+
+    static long rank(long mask)
+    {
+        long rank = 0;
+        int k = 1;
+        for (long squares = mask; squares != 0; squares &= squares - 1)
+        {
+            rank += BINOMIAL[Long.numberOfTrailingZeros(squares)][k++];
+        }
+        return rank;
+    }
+
+    // Renumbers the squares of mask as if the squares in removed were not on the board.
+    static long compress(long mask, long removed)
+    {
+        long compressed = 0;
+        for (long squares = mask; squares != 0; squares &= squares - 1)
+        {
+            int square = Long.numberOfTrailingZeros(squares);
+            compressed |= 1L << (square - Long.bitCount(removed & ((1L << square) - 1)));
+        }
+        return compressed;
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Solves every position with up to --pieces pieces a side by retrograde analysis over the move counter.
+// Each turn lowers the counter by one or two and captures never add pieces, so a position depends only on
+// positions with fewer moves left: layer N is computed from layers N-1 and N-2 alone, in parallel, and
+// appended to the file before the header records it. An interrupted run picks up after the last full layer.
+//
+//   java TablebaseGenerator [--pieces 2] [--moves 50] [--threads N] [--output endgame.tb]
+public class TablebaseGenerator
+{
+    private int pieces = 2;
+    private int moves = Position.START_MOVES;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String output = "endgame.tb";
+
+    private Tablebase layout;
+    private byte[] previous;
+    private byte[] beforePrevious;
+    private byte[] current;
+
+    public static void main(String[] args) throws Exception
+    {
+        TablebaseGenerator generator = new TablebaseGenerator();
+        if (args.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("Option " + args[args.length - 1] + " needs a value");
+        }
+        for (int i = 0; i < args.length; i += 2)
+        {
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "--pieces":
+                    generator.pieces = Integer.parseInt(value);
+                    break;
+                case "--moves":
+                    generator.moves = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    generator.threads = Integer.parseInt(value);
+                    break;
+                case "--output":
+                    generator.output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        generator.run();
+    }
+
+    public void run() throws Exception
+    {
+        // No side ever has more pieces than it starts with.
+        int startPieces = Bitboard.count(Position.startPosition().aiPieces());
+        if (pieces < 1 || pieces > startPieces || moves < 1)
+        {
+            throw new IllegalArgumentException("Need 1 to " + startPieces + " pieces a side and at least one move");
+        }
+        layout = new Tablebase(pieces, moves);
+        // Three layers of one byte per position are held while solving, and each must fit in one array.
+        long positions = 2 * layout.statesPerSide();
+        long memory = 3 * positions;
+        if (positions > Integer.MAX_VALUE - 8 || memory > Runtime.getRuntime().maxMemory())
+        {
+            throw new IllegalArgumentException(String.format("%d pieces a side is %,d positions per layer and needs %,d MB "
+                + "of heap (%,d MB available)%s", pieces, positions, memory >> 20, Runtime.getRuntime().maxMemory() >> 20,
+                positions > Integer.MAX_VALUE - 8 ? "; layers that large are not supported" : "; raise -Xmx or use fewer pieces"));
+        }
+        int states = (int) positions;
+        System.out.printf("%,d positions per layer, %,d bytes per layer on disk, %,d MB of heap while solving%n", states,
+            layout.layerBytes(), memory >> 20);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(output), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE))
+        {
+            int completed = 0;
+            if (channel.size() > 0)
+            {
+                ByteBuffer header = Tablebase.readHeader(channel, Paths.get(output));
+                if (header.getInt(8) != pieces || header.getInt(12) != moves)
+                {
+                    throw new IOException(output + " holds a " + header.getInt(8) + "-piece, " + header.getInt(12)
+                        + "-move table; remove it or generate with the same options");
+                }
+                completed = header.getInt(16);
+                System.out.println("Resuming after layer " + completed);
+            }
+            else
+            {
+                FileHeaders.write(channel, Tablebase.header(pieces, moves, 0));
+            }
+
+            previous = completed >= 1 ? readLayer(channel, completed, states) : new byte[states];
+            beforePrevious = completed >= 2 ? readLayer(channel, completed - 1, states) : new byte[states];
+            current = new byte[states];
+
+            List<long[]> units = workUnits();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int movesLeft = completed + 1; movesLeft <= moves; movesLeft++)
+            {
+                long start = System.nanoTime();
+                solveLayer(pool, units, movesLeft);
+                writeLayer(channel, movesLeft);
+
+                byte[] oldest = beforePrevious;
+                beforePrevious = previous;
+                previous = current;
+                current = oldest;
+                System.out.printf("Layer %d of %d in %.1f s%n", movesLeft, moves, (System.nanoTime() - start) / 1e9);
+            }
+            pool.shutdown();
+        }
+    }
+
+    // One unit per AI piece set and human piece count: a contiguous block of each side's half of the layer.
+    private List<long[]> workUnits()
+    {
+        List<long[]> units = new ArrayList<>();
+        for (int aiCount = 1; aiCount <= pieces; aiCount++)
+        {
+            for (long aiPieces = (1L << aiCount) - 1; aiPieces < 1L << Bitboard.SQUARES; aiPieces = nextCombination(aiPieces))
+            {
+                for (int humanCount = 1; humanCount <= pieces; humanCount++)
+                {
+                    units.add(new long[]{aiPieces, humanCount});
+                }
+            }
+        }
+        return units;
+    }
+
+    private void solveLayer(ExecutorService pool, List<long[]> units, int movesLeft) throws Exception
+    {
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            workers.add(pool.submit(() ->
+            {
+                for (int unit = next.getAndIncrement(); unit < units.size(); unit = next.getAndIncrement())
+                {
+                    solveUnit(units.get(unit)[0], (int) units.get(unit)[1], movesLeft);
+                }
+            }));
+        }
+        for (Future<?> worker : workers)
+        {
+            worker.get();
+        }
+    }
+
+    private void solveUnit(long aiPieces, int humanCount, int movesLeft)
+    {
+        int aiCount = Bitboard.count(aiPieces);
+        int[] free = new int[Bitboard.SQUARES - aiCount];
+        int n = 0;
+        for (int square = 0; square < Bitboard.SQUARES; square++)
+        {
+            if ((aiPieces & Bitboard.bit(square)) == 0)
+            {
+                free[n++] = square;
+            }
+        }
+
+        // Only one position of each symmetry class is solved; its result is written to all of its mirror images.
+        int side = (int) layout.statesPerSide();
+        for (long compressed = (1L << humanCount) - 1; compressed < 1L << free.length; compressed = nextCombination(compressed))
+        {
+            long humanPieces = expand(compressed, free);
+            if (!isCanonical(aiPieces, humanPieces))
+            {
+                continue;
+            }
+            byte aiToMove = (byte) solve(aiPieces, humanPieces, true, movesLeft);
+            byte humanToMove = (byte) solve(aiPieces, humanPieces, false, movesLeft);
+            for (int symmetry = 0; symmetry < Symmetry.COUNT; symmetry++)
+            {
+                int state = (int) layout.state(Symmetry.transform(aiPieces, symmetry), Symmetry.transform(humanPieces, symmetry), true);
+                current[state] = aiToMove;
+                current[state + side] = humanToMove;
+            }
+        }
+    }
+
+    private static boolean isCanonical(long aiPieces, long humanPieces)
+    {
+        for (int symmetry = 1; symmetry < Symmetry.COUNT; symmetry++)
+        {
+            long mirroredAi = Symmetry.transform(aiPieces, symmetry);
+            if (mirroredAi < aiPieces || (mirroredAi == aiPieces && Symmetry.transform(humanPieces, symmetry) < humanPieces))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Best result for the side to move over every turn it has, following Position.generateMoves.
+    private int solve(long aiPieces, long humanPieces, boolean aiTurn, int movesLeft)
+    {
+        long own = aiTurn ? aiPieces : humanPieces;
+        long opponent = aiTurn ? humanPieces : aiPieces;
+        boolean twoPieces = Bitboard.count(own) > 1;
+        int childMoves = movesLeft - (twoPieces ? 2 : 1);
+        byte[] childLayer = twoPieces ? beforePrevious : previous;
+        int win = aiTurn ? Tablebase.AI_WIN : Tablebase.HUMAN_WIN;
+        int best = aiTurn ? Tablebase.HUMAN_WIN : Tablebase.AI_WIN;
+        boolean anyMove = false;
+
+        for (long pieces1 = own; pieces1 != 0; pieces1 &= pieces1 - 1)
+        {
+            int from1 = Long.numberOfTrailingZeros(pieces1);
+            for (long targets1 = Bitboard.neighbours(from1) & ~(own | opponent); targets1 != 0; targets1 &= targets1 - 1)
+            {
+                int to1 = Long.numberOfTrailingZeros(targets1);
+                long own1 = own ^ Bitboard.bit(from1) ^ Bitboard.bit(to1);
+                long captured1 = Bitboard.captures(own1, opponent, to1);
+                own1 &= ~captured1;
+                long opponent1 = opponent & ~captured1;
+
+                boolean secondMoveFound = false;
+                if (twoPieces)
+                {
+                    for (long pieces2 = own1 & ~Bitboard.bit(to1); pieces2 != 0; pieces2 &= pieces2 - 1)
+                    {
+                        int from2 = Long.numberOfTrailingZeros(pieces2);
+                        for (long targets2 = Bitboard.neighbours(from2) & ~(own1 | opponent1); targets2 != 0; targets2 &= targets2 - 1)
+                        {
+                            int to2 = Long.numberOfTrailingZeros(targets2);
+                            long own2 = own1 ^ Bitboard.bit(from2) ^ Bitboard.bit(to2);
+                            long captured2 = Bitboard.captures(own2, opponent1, to2);
+                            secondMoveFound = true;
+                            int result = child(own2 & ~captured2, opponent1 & ~captured2, aiTurn, childMoves, childLayer);
+                            if (result == win)
+                            {
+                                return win;
+                            }
+                            if (result == Tablebase.DRAW)
+                            {
+                                best = Tablebase.DRAW;
+                            }
+                        }
+                    }
+                }
+                if (!secondMoveFound)
+                {
+                    int result = child(own1, opponent1, aiTurn, childMoves, childLayer);
+                    if (result == win)
+                    {
+                        return win;
+                    }
+                    if (result == Tablebase.DRAW)
+                    {
+                        best = Tablebase.DRAW;
+                    }
+                }
+                anyMove = true;
+            }
+        }
+        // A side that cannot move at all ends the game where it stands.
+        return anyMove ? best : Tablebase.outcome(Bitboard.count(aiPieces), Bitboard.count(humanPieces));
+    }
+
+    private int child(long own, long opponent, boolean aiTurn, int movesLeft, byte[] layer)
+    {
+        long aiPieces = aiTurn ? own : opponent;
+        long humanPieces = aiTurn ? opponent : own;
+        if (aiPieces == 0 || humanPieces == 0 || movesLeft <= 0)
+        {
+            return Tablebase.outcome(Bitboard.count(aiPieces), Bitboard.count(humanPieces));
+        }
+        return layer[(int) layout.state(aiPieces, humanPieces, !aiTurn)];
+    }
+
+    private void writeLayer(FileChannel channel, int movesLeft) throws IOException
+    {
+        ByteBuffer packed = ByteBuffer.allocate((int) layout.layerBytes());
+        for (int state = 0; state < current.length; state += 4)
+        {
+            int value = 0;
+            for (int i = 0; i < 4 && state + i < current.length; i++)
+            {
+                value |= current[state + i] << (i * 2);
+            }
+            packed.put((byte) value);
+        }
+        packed.flip();
+        long position = layout.layerOffset(movesLeft);
+        while (packed.hasRemaining())
+        {
+            position += channel.write(packed, position);
+        }
+        // The layer must be on disk before the header claims it, or a crash could leave a hole a resume trusts.
+        channel.force(false);
+        FileHeaders.write(channel, Tablebase.header(pieces, moves, movesLeft));
+        channel.force(false);
+    }
+
+    private byte[] readLayer(FileChannel channel, int movesLeft, int states) throws IOException
+    {
+        ByteBuffer packed = ByteBuffer.allocate((int) layout.layerBytes());
+        long position = layout.layerOffset(movesLeft);
+        while (packed.hasRemaining())
+        {
+            int read = channel.read(packed, position + packed.position());
+            if (read < 0)
+            {
+                throw new IOException(output + " is truncated");
+            }
+        }
+        byte[] layer = new byte[states];
+        for (int state = 0; state < states; state++)
+        {
+            layer[state] = (byte) ((packed.get(state >>> 2) >>> ((state & 3) * 2)) & 3);
+        }
+        return layer;
+    }
+
+    private static long expand(long compressed, int[] free)
+    {
+        long mask = 0;
+        for (long bits = compressed; bits != 0; bits &= bits - 1)
+        {
+            mask |= Bitboard.bit(free[Long.numberOfTrailingZeros(bits)]);
+        }
+        return mask;
+    }
+
+    // The next larger mask with the same number of bits set.
+    private static long nextCombination(long mask)
+    {
+        long lowest = mask & -mask;
+        long ripple = mask + lowest;
+        return ripple | (((mask ^ ripple) >>> 2) / lowest);
+    }
+}
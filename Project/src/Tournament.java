@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless AI-vs-AI matches between two engine configurations, played in parallel across cores.
+//
+//   java Tournament [--games N] [--parallel N] [--random-plies N] [--seed N]
+//                   [--engine-a depth=6,time=100,nodes=0,threads=1,hash=4,qnodes=256,
+//                               lmr=1,futility=1,rfp=1,multicut=1,book=opening.book,tb=endgame.tb,
+//                               table=FILE[,ro]]
+//                   [--engine-b ...]
+//
+// table= gives the engine a PersistentTranspositionTable in FILE (created with hash MB if missing) instead of
+// a table on the heap; it is shared by all of that engine's games and by any other process mapping the file,
+// and ro probes it without writing.
+public class Tournament
+{
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+    private static final int LOSS = 0;
+
+    private int games = 100;
+    private int parallel = Runtime.getRuntime().availableProcessors();
+    private int randomPlies = 2;
+    private long seed = 1;
+    private EngineConfig engineA = EngineConfig.parse("depth=4,time=0,nodes=0,threads=1,hash=4");
+    private EngineConfig engineB = EngineConfig.parse("depth=4,time=0,nodes=0,threads=1,hash=4");
+
+    private final ThreadLocal<AIPlayer[]> engines = ThreadLocal.withInitial(() -> new AIPlayer[]{engineA.create(), engineB.create()});
+
+    public static void main(String[] args) throws Exception
+    {
+        Tournament tournament = new Tournament();
+        if (args.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("Option " + args[args.length - 1] + " needs a value");
+        }
+        for (int i = 0; i < args.length; i += 2)
+        {
+            String value = args[i + 1];
+            switch (args[i])
+            {
+                case "--games":
+                    tournament.games = Integer.parseInt(value);
+                    break;
+                case "--parallel":
+                    tournament.parallel = Integer.parseInt(value);
+                    break;
+                case "--random-plies":
+                    tournament.randomPlies = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    tournament.seed = Long.parseLong(value);
+                    break;
+                case "--engine-a":
+                    tournament.engineA = EngineConfig.parse(value);
+                    break;
+                case "--engine-b":
+                    tournament.engineB = EngineConfig.parse(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        tournament.run();
+    }
+
+    public void run() throws Exception
+    {
+        System.out.println("Engine A: " + engineA + "\nEngine B: " + engineB);
+        System.out.println("Games: " + games + " on " + parallel + " threads, " + randomPlies + " random opening plies");
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        List<Future<GameRecord>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int game = 0; game < games; game++)
+        {
+            // Each opening is played twice with colours swapped, so neither engine gets the better side of it.
+            long openingSeed = seed + game / 2;
+            boolean engineAFirst = game % 2 == 0;
+            futures.add(pool.submit(() -> playGame(openingSeed, engineAFirst)));
+        }
+
+        int[] results = new int[3];
+        long[] nodes = new long[2];
+        long[] nanos = new long[2];
+        long[] turns = new long[2];
+        List<Long> moveTimes = new ArrayList<>();
+        for (Future<GameRecord> future : futures)
+        {
+            GameRecord record = future.get();
+            results[record.result]++;
+            for (int engine = 0; engine < 2; engine++)
+            {
+                nodes[engine] += record.nodes[engine];
+                nanos[engine] += record.nanos[engine];
+                turns[engine] += record.turns[engine];
+            }
+            moveTimes.addAll(record.moveTimes);
+            int played = results[WIN] + results[DRAW] + results[LOSS];
+            if (played % 100 == 0)
+            {
+                System.out.println("  " + played + " games: +" + results[WIN] + " =" + results[DRAW] + " -" + results[LOSS]);
+            }
+        }
+        pool.shutdown();
+        report(results, nodes, nanos, turns, moveTimes, System.nanoTime() - start);
+    }
+
+    private GameRecord playGame(long openingSeed, boolean engineAFirst)
+    {
+        AIPlayer[] players = engines.get();
+        for (AIPlayer player : players)
+        {
+            player.newGame();
+        }
+        GameRecord record = new GameRecord();
+        Position position = Position.startPosition();
+        MoveList moves = new MoveList();
+        SplittableRandom random = new SplittableRandom(openingSeed);
+        for (int ply = 0; ply < randomPlies && !position.isGameOver(); ply++)
+        {
+            position.generateMoves(moves);
+            if (moves.isEmpty())
+            {
+                break;
+            }
+            position = play(position, moves.get(random.nextInt(moves.size())));
+        }
+
+        while (!position.isGameOver())
+        {
+            // The AI side of the board (triangles) always moves first; engine A takes it in even games.
+            int engine = position.isAiTurn() == engineAFirst ? 0 : 1;
+            long start = System.nanoTime();
+            int move = players[engine].chooseMove(position);
+            long elapsed = System.nanoTime() - start;
+            if (move == Move.NONE)
+            {
+                break;
+            }
+            record.nodes[engine] += players[engine].lastSearchNodes();
+            record.nanos[engine] += elapsed;
+            record.turns[engine]++;
+            record.moveTimes.add(elapsed);
+            position = play(position, move);
+        }
+
+        int aiPieces = Bitboard.count(position.aiPieces());
+        int humanPieces = Bitboard.count(position.humanPieces());
+        int engineAPieces = engineAFirst ? aiPieces : humanPieces;
+        int engineBPieces = engineAFirst ? humanPieces : aiPieces;
+        record.result = engineAPieces > engineBPieces ? WIN : engineAPieces < engineBPieces ? LOSS : DRAW;
+        return record;
+    }
+
+    // A fresh Position per turn keeps games far longer than MAX_PLY from filling the undo stack.
+    private static Position play(Position position, int move)
+    {
+        position.makeMove(move);
+        return position.copy();
+    }
+
+    private void report(int[] results, long[] nodes, long[] nanos, long[] turns, List<Long> moveTimes, long elapsed)
+    {
+        int n = results[WIN] + results[DRAW] + results[LOSS];
+        double score = (results[WIN] + 0.5 * results[DRAW]) / n;
+        double variance = (results[WIN] * Math.pow(1 - score, 2) + results[DRAW] * Math.pow(0.5 - score, 2)
+            + results[LOSS] * Math.pow(score, 2)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+
+        System.out.println();
+        System.out.printf("Engine A: +%d =%d -%d  score %.1f%% +/- %.1f%%%n", results[WIN], results[DRAW], results[LOSS], 100 * score, 100 * margin);
+        System.out.printf("Elo difference: %s  (95%%: %s .. %s)%n", elo(score), elo(score - margin), elo(score + margin));
+        for (int engine = 0; engine < 2; engine++)
+        {
+            System.out.printf("Engine %s: %,d nodes/s, %.1f ms per move over %d moves%n", engine == 0 ? "A" : "B",
+                nodes[engine] * 1_000_000_000L / Math.max(1, nanos[engine]), nanos[engine] / 1e6 / Math.max(1, turns[engine]), turns[engine]);
+        }
+        moveTimes.sort(null);
+        if (!moveTimes.isEmpty())
+        {
+            System.out.printf("Move time: median %.1f ms, 95th percentile %.1f ms, max %.1f ms%n",
+                moveTimes.get(moveTimes.size() / 2) / 1e6, moveTimes.get(moveTimes.size() * 95 / 100) / 1e6, moveTimes.get(moveTimes.size() - 1) / 1e6);
+        }
+        System.out.printf("Wall time: %.1f s%n", elapsed / 1e9);
+    }
+
+    private static String elo(double score)
+    {
+        if (score <= 0)
+        {
+            return "-inf";
+        }
+        if (score >= 1)
+        {
+            return "+inf";
+        }
+        return String.format("%+.0f", -400 * Math.log10(1 / score - 1));
+    }
+
+    private static class GameRecord
+    {
+        int result;
+        long[] nodes = new long[2];
+        long[] nanos = new long[2];
+        int[] turns = new int[2];
+        List<Long> moveTimes = new ArrayList<>();
+    }
+
+    private static class EngineConfig
+    {
+        int depth;
+        long time;
+        long nodes;
+        int threads;
+        int hash;
+        int quiescence;
+        int pruning;
+        String book;
+        String tablebase;
+        String table;
+        boolean tableReadOnly;
+        private PersistentTranspositionTable persistentTable;
+
+        static EngineConfig parse(String text)
+        {
+            EngineConfig config = new EngineConfig();
+            config.depth = 4;
+            config.threads = 1;
+            config.hash = 4;
+            config.quiescence = SearchWorker.DEFAULT_QUIESCENCE_BUDGET;
+            config.pruning = SearchWorker.DEFAULT_PRUNING;
+            for (String option : text.split(","))
+            {
+                if (option.trim().equals("ro"))
+                {
+                    config.tableReadOnly = true;
+                    continue;
+                }
+                String[] pair = option.split("=");
+                if (pair.length != 2)
+                {
+                    throw new IllegalArgumentException("Engine option " + option + " needs a value");
+                }
+                if (pair[0].trim().equals("book"))
+                {
+                    config.book = pair[1].trim();
+                    continue;
+                }
+                if (pair[0].trim().equals("tb"))
+                {
+                    config.tablebase = pair[1].trim();
+                    continue;
+                }
+                if (pair[0].trim().equals("table"))
+                {
+                    config.table = pair[1].trim();
+                    continue;
+                }
+                long value = Long.parseLong(pair[1].trim());
+                switch (pair[0].trim())
+                {
+                    case "depth":
+                        config.depth = (int) value;
+                        break;
+                    case "time":
+                        config.time = value;
+                        break;
+                    case "nodes":
+                        config.nodes = value;
+                        break;
+                    case "threads":
+                        config.threads = (int) value;
+                        break;
+                    case "hash":
+                        config.hash = (int) value;
+                        break;
+                    case "qnodes":
+                        config.quiescence = (int) value;
+                        break;
+                    case "lmr":
+                        config.pruning = toggle(config.pruning, SearchWorker.LATE_MOVE_REDUCTIONS, value);
+                        break;
+                    case "futility":
+                        config.pruning = toggle(config.pruning, SearchWorker.FUTILITY, value);
+                        break;
+                    case "rfp":
+                        config.pruning = toggle(config.pruning, SearchWorker.REVERSE_FUTILITY, value);
+                        break;
+                    case "multicut":
+                        config.pruning = toggle(config.pruning, SearchWorker.MULTI_CUT, value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown engine option " + pair[0]);
+                }
+            }
+            if (config.tableReadOnly && config.table == null)
+            {
+                throw new IllegalArgumentException("Engine option ro needs table=FILE");
+            }
+            return config;
+        }
+
+        private static int toggle(int features, int feature, long on)
+        {
+            return on != 0 ? features | feature : features & ~feature;
+        }
+
+        AIPlayer create()
+        {
+            AIPlayer player = table != null ? new AIPlayer(depth, persistentTable()) : new AIPlayer(depth, hash);
+            player.setTimeBudget(time);
+            player.setNodeBudget(nodes);
+            player.setThreads(threads);
+            player.setQuiescenceBudget(quiescence);
+            player.setPruning(pruning);
+            try
+            {
+                if (book != null)
+                {
+                    player.setOpeningBook(OpeningBook.open(Paths.get(book)));
+                }
+                if (tablebase != null)
+                {
+                    player.setTablebase(Tablebase.open(Paths.get(tablebase)));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            return player;
+        }
+
+        // One mapping per engine, shared by the players of every tournament thread.
+        private synchronized PersistentTranspositionTable persistentTable()
+        {
+            if (persistentTable == null)
+            {
+                try
+                {
+                    persistentTable = PersistentTranspositionTable.open(Paths.get(table), hash, tableReadOnly);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return persistentTable;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "depth=" + depth + ",time=" + time + ",nodes=" + nodes + ",threads=" + threads + ",hash=" + hash
+                + ",qnodes=" + quiescence + ",pruning=" + pruning + (book != null ? ",book=" + book : "") + (tablebase != null ? ",tb=" + tablebase : "")
+                + (table != null ? ",table=" + table + (tableReadOnly ? ",ro" : "") : "");
+        }
+    }
+}
@@ -1,13 +1,11 @@
 public class TranspositionEntry 
 {
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
     int value; 
     int depth;
-    boolean isExact;
-
-    public TranspositionEntry(int value, int depth, boolean isExact) 
-    {
-        this.value = value;
-        this.depth = depth;
-        this.isExact = isExact;
-    }
+    int bound;
+    int move;
 }
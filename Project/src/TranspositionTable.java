@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+public class TranspositionTable
+{
+    public static final int DEFAULT_SIZE_MB = 16;
+    public static final int VALUE_LIMIT = (1 << 19) - 1;
+
+    static final int ENTRY_BYTES = 16;
+    static final int SLOTS = 2;
+
+    private static final int MOVE_BITS = 25;
+    private static final int VALUE_SHIFT = MOVE_BITS;
+    private static final int DEPTH_SHIFT = VALUE_SHIFT + 20;
+    private static final int BOUND_SHIFT = DEPTH_SHIFT + 8;
+    private static final int GENERATION_SHIFT = BOUND_SHIFT + 2;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private volatile int generation;
+
+    public TranspositionTable(int sizeInMegabytes)
+    {
+        this(buckets(sizeInMegabytes, 1 << 28), true);
+    }
+
+    // Subclasses that keep the entries elsewhere pass onHeap false and override the slot accessors.
+    TranspositionTable(int buckets, boolean onHeap)
+    {
+        keys = onHeap ? new long[buckets * SLOTS] : null;
+        data = onHeap ? new long[buckets * SLOTS] : null;
+        bucketMask = buckets - 1;
+    }
+
+    // The largest power-of-two bucket count that fits in the size, at most limit.
+    static int buckets(int sizeInMegabytes, int limit)
+    {
+        long entries = Math.max(SLOTS, (long) sizeInMegabytes * 1024 * 1024 / ENTRY_BYTES);
+        return Integer.highestOneBit((int) Math.min(entries / SLOTS, limit));
+    }
+
+    // A persistent table keeps its entries from one game, and one run, to the next.
+    public boolean isPersistent()
+    {
+        return false;
+    }
+
+    // Called once per search so entries left over from earlier turns lose their replacement priority.
+    public void newSearch()
+    {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear()
+    {
+        clearEntries();
+        generation = 0;
+    }
+
+    // Shared by all search threads without locks: the stored key is XORed with the data, so a slot
+    // torn by two threads writing at once no longer matches either key and is simply a miss.
+    public boolean probe(long key, TranspositionEntry entry)
+    {
+        int index = bucket(key);
+        for (int slot = index; slot < index + SLOTS; slot++)
+        {
+            long packed = dataAt(slot);
+            if ((keyAt(slot) ^ packed) == key && packed != 0)
+            {
+                entry.move = (int) (packed & ((1L << MOVE_BITS) - 1));
+                entry.value = (int) (packed << (64 - DEPTH_SHIFT) >> (64 - 20));
+                entry.depth = (int) (packed >>> DEPTH_SHIFT) & 0xFF;
+                entry.bound = (int) (packed >>> BOUND_SHIFT) & 0x3;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Slot 0 of each bucket keeps the deepest entry of the current search, slot 1 is always replaced.
+    public void store(long key, int value, int depth, int bound, int move)
+    {
+        int index = bucket(key);
+        int slot = index + 1;
+        long first = dataAt(index);
+        if ((keyAt(index) ^ first) == key || depth >= depthOf(first) || generationOf(first) != generation)
+        {
+            slot = index;
+        }
+
+        int clamped = Math.max(-VALUE_LIMIT, Math.min(VALUE_LIMIT, value));
+        long packed = (move & ((1L << MOVE_BITS) - 1))
+            | ((clamped & 0xFFFFFL) << VALUE_SHIFT)
+            | ((long) depth << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) generation << GENERATION_SHIFT)
+            | 1L << 63;
+        put(slot, key ^ packed, packed);
+    }
+
+    long keyAt(int slot)
+    {
+        return keys[slot];
+    }
+
+    long dataAt(int slot)
+    {
+        return data[slot];
+    }
+
+    void put(int slot, long storedKey, long packed)
+    {
+        keys[slot] = storedKey;
+        data[slot] = packed;
+    }
+
+    void clearEntries()
+    {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    private int bucket(long key)
+    {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * SLOTS;
+    }
+
+    private static int depthOf(long packed)
+    {
+        return (int) (packed >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    private static int generationOf(long packed)
+    {
+        return (int) (packed >>> GENERATION_SHIFT) & 0xFF;
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.SplittableRandom;
+
+public class Zobrist
+{
+    public static final int MAX_MOVES = 255;
+
+    private static final long SEED = 0x5EEDB0A2D6A3E5L;
+    private static final long[][] PIECES = new long[2][Bitboard.SQUARES];
+    private static final long[] MOVES_LEFT = new long[MAX_MOVES + 1];
+    private static final long HUMAN_TO_MOVE;
+
+    static
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int side = 0; side < 2; side++)
+        {
+            for (int square = 0; square < Bitboard.SQUARES; square++)
+            {
+                PIECES[side][square] = random.nextLong();
+            }
+        }
+        for (int moves = 0; moves <= MAX_MOVES; moves++)
+        {
+            MOVES_LEFT[moves] = random.nextLong();
+        }
+        HUMAN_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist()
+    {
+    }
+
+    public static long piece(boolean isAIControlled, int square)
+    {
+        return PIECES[isAIControlled ? 0 : 1][square];
+    }
+
+    public static long pieces(boolean isAIControlled, long mask)
+    {
+        long key = 0;
+        for (long squares = mask; squares != 0; squares &= squares - 1)
+        {
+            key ^= piece(isAIControlled, Long.numberOfTrailingZeros(squares));
+        }
+        return key;
+    }
+
+    public static long sideToMove(boolean isAiTurn)
+    {
+        return isAiTurn ? 0 : HUMAN_TO_MOVE;
+    }
+
+    public static long movesLeft(int moves)
+    {
+        return MOVES_LEFT[Math.max(0, Math.min(moves, MAX_MOVES))];
+    }
+
+    public static long key(long aiPieces, long humanPieces, boolean isAiTurn, int moves)
+    {
+        return pieces(true, aiPieces) ^ pieces(false, humanPieces) ^ sideToMove(isAiTurn) ^ movesLeft(moves);
+    }
+}